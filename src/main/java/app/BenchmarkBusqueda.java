@@ -0,0 +1,148 @@
+package app;
+
+import dao.ClienteDAO;
+import dao.TextSearch;
+import db.Db;
+import db.SqlScripts;
+import model.Cliente;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmark de ClienteDAO.search contra la BD.
+ *
+ * 1) Mete N clientes sintéticos (por defecto 1 000 000) a partir del id más alto
+ *    que ya exista, generados en el servidor con generate_series.
+ * 2) Aplica la migración de índices de trigramas (SqlScripts.BUSQUEDA_TRIGRAM).
+ * 3) Lanza varias búsquedas típicas y muestra mediana, p95 y máximo en ms,
+ *    más el plan de algunas (deben salir Index Scan con "Order By" sobre los
+ *    índices GiST, no Seq Scan ni un Sort de todas las coincidencias).
+ * 4) Borra los clientes sintéticos (salvo con --conservar).
+ *
+ * Uso: BenchmarkBusqueda [numClientes] [--conservar]
+ */
+public class BenchmarkBusqueda {
+
+    private static final int REPETICIONES = 50;
+    private static final double OBJETIVO_MS = 10.0;
+
+    private static final String[] BUSQUEDAS = {
+            "garcía", "lopez", "martín", "ana", "fernández ruiz", "@lampreas", "123456", "xyzzy", "ma"
+    };
+
+    // Nombres y apellidos combinados en el servidor: id -> nombre "Nombre Apellido1 Apellido2"
+    private static final String SEED_SQL = """
+            INSERT INTO cliente (id, nombre, email)
+            SELECT g,
+                   n[1 + g % array_length(n, 1)] || ' ' ||
+                   a[1 + (g / 7) % array_length(a, 1)] || ' ' ||
+                   a[1 + (g / 131) % array_length(a, 1)],
+                   'cliente' || g || '@lampreas.es'
+            FROM generate_series(?::int, ?::int) AS g,
+                 (SELECT ARRAY['Ana','Luis','María','José','Carmen','Javier','Lucía','Pablo','Elena','Martín',
+                               'Sofía','Diego','Paula','Hugo','Laura','Álvaro','Marta','Sergio','Irene','Raúl'] AS n,
+                         ARRAY['García','López','Martínez','Sánchez','Pérez','Gómez','Fernández','Ruiz','Díaz',
+                               'Moreno','Álvarez','Romero','Navarro','Torres','Domínguez','Vázquez','Ramos',
+                               'Gil','Serrano','Blanco','Molina','Castro','Ortega','Rubio','Marín'] AS a) AS nombres
+            """;
+
+    public static void main(String[] args) throws SQLException, IOException {
+        int n = args.length > 0 && !args[0].startsWith("--") ? Integer.parseInt(args[0]) : 1_000_000;
+        boolean conservar = Arrays.asList(args).contains("--conservar");
+
+        int desde = maxId() + 1;
+        int hasta = desde + n - 1;
+
+        long t0 = System.nanoTime();
+        sembrar(desde, hasta);
+        System.out.printf("Insertados %d clientes (ids %d..%d) en %d ms%n", n, desde, hasta, ms(t0));
+
+        t0 = System.nanoTime();
+        SqlScripts.ejecutar(SqlScripts.BUSQUEDA_TRIGRAM);
+        System.out.printf("Índices de trigramas listos en %d ms%n", ms(t0));
+
+        ClienteDAO dao = new ClienteDAO();
+        try {
+            medir(dao);
+            mostrarPlan(dao, BUSQUEDAS[0]);
+            mostrarPlan(dao, "@lampreas");
+        } finally {
+            if (!conservar) {
+                borrar(desde, hasta);
+                System.out.println("Clientes sintéticos borrados.");
+            }
+        }
+    }
+
+    private static void medir(ClienteDAO dao) throws SQLException {
+        System.out.printf("%-16s %8s %10s %8s %8s%n", "filtro", "filas", "mediana ms", "p95 ms", "máx ms");
+        boolean todoBien = true;
+
+        for (String filtro : BUSQUEDAS) {
+            List<Cliente> r = dao.search(filtro);   // calentamiento (JIT, caché de sentencias, buffers)
+
+            double[] tiempos = new double[REPETICIONES];
+            for (int i = 0; i < REPETICIONES; i++) {
+                long t0 = System.nanoTime();
+                r = dao.search(filtro);
+                tiempos[i] = (System.nanoTime() - t0) / 1_000_000.0;
+            }
+            Arrays.sort(tiempos);
+            double mediana = tiempos[REPETICIONES / 2];
+            double p95 = tiempos[(int) Math.ceil(REPETICIONES * 0.95) - 1];
+            todoBien &= mediana < OBJETIVO_MS;
+
+            System.out.printf("%-16s %8d %10.2f %8.2f %8.2f%s%n", filtro, r.size(), mediana, p95,
+                    tiempos[REPETICIONES - 1], mediana < OBJETIVO_MS ? "" : "  <-- por encima del objetivo");
+        }
+        System.out.println(todoBien
+                ? "OK: todas las búsquedas por debajo de " + OBJETIVO_MS + " ms (mediana)"
+                : "ATENCIÓN: alguna búsqueda supera " + OBJETIVO_MS + " ms (mediana)");
+    }
+
+    // Plan real de la misma consulta que lanza search(), para comprobar que usa los índices
+    private static void mostrarPlan(ClienteDAO dao, String filtro) throws SQLException {
+        System.out.println("Plan para '" + filtro + "':");
+        for (String linea : dao.planBusqueda(filtro, TextSearch.DEFAULT_LIMIT)) {
+            System.out.println("  " + linea);
+        }
+    }
+
+    private static int maxId() throws SQLException {
+        try (Connection con = Db.getConnection();
+             Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM cliente")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static void sembrar(int desde, int hasta) throws SQLException {
+        try (Connection con = Db.getConnection();
+             PreparedStatement ps = con.prepareStatement(SEED_SQL)) {
+            ps.setInt(1, desde);
+            ps.setInt(2, hasta);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void borrar(int desde, int hasta) throws SQLException {
+        try (Connection con = Db.getConnection();
+             PreparedStatement ps = con.prepareStatement("DELETE FROM cliente WHERE id BETWEEN ? AND ?")) {
+            ps.setInt(1, desde);
+            ps.setInt(2, hasta);
+            ps.executeUpdate();
+        }
+    }
+
+    private static long ms(long t0) {
+        return (System.nanoTime() - t0) / 1_000_000;
+    }
+}
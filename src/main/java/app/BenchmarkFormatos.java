@@ -0,0 +1,127 @@
+package app;
+
+import model.*;
+import services.JsonIO;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark por consola de los formatos de JsonIO.
+ *
+ * Genera un AppData de tamaño realista (no necesita BD), lo escribe y lo lee
+ * en cada formato, con y sin gzip, y muestra tamaño y velocidad.
+ *
+ * Uso: BenchmarkFormatos [numClientes]   (por defecto 50 000)
+ */
+public class BenchmarkFormatos {
+
+    private static final int REPETICIONES = 3;
+
+    private static final String[] FICHEROS = {
+            "snapshot.json", "snapshot.min.json", "snapshot.smile", "snapshot.cbor",
+            "snapshot.json.gz", "snapshot.min.json.gz", "snapshot.smile.gz", "snapshot.cbor.gz"
+    };
+
+    public static void main(String[] args) throws IOException {
+        int clientes = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        AppData data = generar(clientes, new Random(42));
+
+        File dir = Files.createTempDirectory("lampreas-bench").toFile();
+        System.out.printf("AppData: %d clientes, %d pedidos, %d líneas, %d envíos%n",
+                data.getClientes().size(), data.getPedidos().size(),
+                data.getDetallesPedido().size(), data.getEnvios().size());
+        System.out.printf("%-22s %12s %12s %12s%n", "fichero", "tamaño (KB)", "escribir ms", "leer ms");
+
+        for (String nombre : FICHEROS) {
+            File f = new File(dir, nombre);
+
+            // Una pasada de calentamiento para que el JIT no cuente en la medida
+            JsonIO.write(f, data);
+            JsonIO.read(f, AppData.class);
+
+            long[] escritura = new long[REPETICIONES];
+            long[] lectura = new long[REPETICIONES];
+            for (int i = 0; i < REPETICIONES; i++) {
+                long t0 = System.nanoTime();
+                JsonIO.write(f, data);
+                escritura[i] = (System.nanoTime() - t0) / 1_000_000;
+
+                t0 = System.nanoTime();
+                JsonIO.read(f, AppData.class);
+                lectura[i] = (System.nanoTime() - t0) / 1_000_000;
+            }
+
+            System.out.printf("%-22s %12d %12d %12d%n",
+                    nombre, f.length() / 1024, mediana(escritura), mediana(lectura));
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    private static long mediana(long[] v) {
+        long[] c = v.clone();
+        Arrays.sort(c);
+        return c[c.length / 2];
+    }
+
+    /** Datos sintéticos con proporciones parecidas a las reales. */
+    private static AppData generar(int numClientes, Random rnd) {
+        AppData d = new AppData();
+
+        List<Cliente> clientes = new ArrayList<>();
+        List<DetalleCliente> detalles = new ArrayList<>();
+        for (int i = 1; i <= numClientes; i++) {
+            clientes.add(new Cliente(i, "Cliente " + i, "cliente" + i + "@lampreas.es"));
+            detalles.add(new DetalleCliente(i, "Calle " + rnd.nextInt(500) + ", " + (1 + rnd.nextInt(99)),
+                    "6" + (10_000_000 + rnd.nextInt(89_999_999)), i % 5 == 0 ? "Cliente preferente" : ""));
+        }
+
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 1; i <= 1_000; i++) {
+            productos.add(new Producto(i, "Producto " + i, 1 + rnd.nextInt(10_000) / 100.0));
+        }
+
+        List<Comercial> comerciales = new ArrayList<>();
+        List<Repartidor> repartidores = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            comerciales.add(new Comercial(i, "Comercial " + i, "Zona " + (i % 10)));
+            repartidores.add(new Repartidor(i, "Repartidor " + i, i % 2 == 0 ? "Furgoneta" : "Moto"));
+        }
+
+        List<Pedido> pedidos = new ArrayList<>();
+        List<DetallePedido> lineas = new ArrayList<>();
+        List<Envio> envios = new ArrayList<>();
+        LocalDate base = LocalDate.of(2024, 1, 1);
+        int numPedidos = numClientes * 2;
+        for (int i = 1; i <= numPedidos; i++) {
+            Pedido p = new Pedido(i, 1 + rnd.nextInt(numClientes), base.plusDays(rnd.nextInt(365)));
+            pedidos.add(p);
+            int n = 1 + rnd.nextInt(5);
+            for (int k = 0; k < n; k++) {
+                Producto pr = productos.get(rnd.nextInt(productos.size()));
+                lineas.add(new DetallePedido(i, pr.getId() , 1 + rnd.nextInt(10), pr.getPrecio()));
+            }
+            if (i % 2 == 0) {
+                envios.add(new Envio(i / 2, new Pedido(i, p.getClienteId()),
+                        comerciales.get(rnd.nextInt(100)), repartidores.get(rnd.nextInt(100))));
+            }
+        }
+
+        d.setClientes(clientes);
+        d.setDetallesCliente(detalles);
+        d.setProductos(productos);
+        d.setPedidos(pedidos);
+        d.setDetallesPedido(lineas);
+        d.setComerciales(comerciales);
+        d.setRepartidores(repartidores);
+        d.setEnvio(envios);
+        return d;
+    }
+}
@@ -0,0 +1,275 @@
+package app;
+
+import dao.ClienteDAO;
+import javafx.collections.ObservableListBase;
+import javafx.concurrent.Task;
+import model.Cliente;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Lista para el TableView de clientes que NO tiene todos los clientes en memoria.
+ *
+ * El TableView solo pide (get(i)) las filas visibles. La fila i está en la
+ * página i / pageSize y cada página se trae con una consulta por clave
+ * (ClienteDAO.page), sin recorrer la tabla:
+ *
+ *  - El número de filas es una estimación (ClienteDAO.estimatedCount, de las
+ *    estadísticas de la tabla). Se corrige al llegar al final: si la última
+ *    página viene corta se recorta la lista y si viene llena se alarga.
+ *  - Cada página que llega deja apuntado dónde empieza la siguiente (su último
+ *    id). Para saltar a una página lejana (arrastrando la barra) se parte de la
+ *    página conocida más cercana por debajo y se salta el tramo intermedio con
+ *    OFFSET, que solo recorre ese tramo del índice.
+ *  - Mientras una página llega, sus filas son el marcador CARGANDO; al llegar se
+ *    notifica un "replace" de ese tramo y la tabla las repinta.
+ *  - Al leer una página se pide ya la siguiente en el sentido del scroll.
+ *  - Como mucho se guardan maxPaginas páginas: al pasar de ahí se descarta la
+ *    usada hace más tiempo (las lejanas). Si se vuelve a ella, se pide otra vez.
+ *
+ * Las consultas van por TareasFondo. Solo se usa desde el hilo de JavaFX.
+ * Si cambian unos clientes concretos, refrescar(ids) vuelve a pedir solo las
+ * páginas cargadas donde caen; recargar() vuelve a estimar y empieza de cero.
+ */
+public class ClientesPaginados extends ObservableListBase<Cliente> {
+
+    public static final int DEFAULT_PAGE_SIZE = 200;
+    public static final int DEFAULT_MAX_PAGINAS = 20;
+
+    /** Fila que aún no ha llegado de la BD (id null). */
+    public static final Cliente CARGANDO = new Cliente(null, "Cargando…", "");
+
+    private final ClienteDAO dao;
+    private final TareasFondo tareas;
+    private final Consumer<Throwable> alFallar;
+    private final int pageSize;
+
+    // Orden de acceso: la primera es la página usada hace más tiempo
+    private final LinkedHashMap<Integer, List<Cliente>> paginas;
+    private final Map<Integer, Task<List<Cliente>>> pendientes = new HashMap<>();
+
+    // Aviso opcional cada vez que llega una página (p. ej. para precargar sus detalles)
+    private Consumer<List<Cliente>> alCargarPagina = filas -> { };
+
+    // Página -> id tras el que empieza (la 0, tras Integer.MIN_VALUE). Solo las conocidas.
+    private final TreeMap<Integer, Integer> inicios = new TreeMap<>();
+    private int size;
+    private int ultimaPagina;
+
+    // Se incrementa en cada recargar(): las páginas de antes se descartan al llegar
+    private long generacion;
+
+    public static boolean esMarcador(Cliente c) {
+        return c == CARGANDO;
+    }
+
+    public ClientesPaginados(ClienteDAO dao, TareasFondo tareas, Consumer<Throwable> alFallar) {
+        this(dao, tareas, alFallar, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGINAS);
+    }
+
+    public ClientesPaginados(ClienteDAO dao, TareasFondo tareas, Consumer<Throwable> alFallar,
+                             int pageSize, int maxPaginas) {
+        this.dao = dao;
+        this.tareas = tareas;
+        this.alFallar = alFallar;
+        this.pageSize = pageSize;
+        this.inicios.put(0, Integer.MIN_VALUE);
+        this.paginas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Cliente>> eldest) {
+                return size() > maxPaginas;
+            }
+        };
+    }
+
+    /** Vuelve a estimar cuántos clientes hay; lo cargado y los inicios de página se descartan. */
+    public void recargar() {
+        long gen = ++generacion;
+        tareas.ejecutar(dao::estimatedCount, estimado -> {
+            if (gen != generacion) return;   // ha habido otro recargar() después
+
+            pendientes.values().forEach(Task::cancel);
+            pendientes.clear();
+            paginas.clear();
+            inicios.clear();
+            inicios.put(0, Integer.MIN_VALUE);
+
+            int antes = size;
+            size = (int) Math.min(Integer.MAX_VALUE, estimado);
+
+            beginChange();
+            if (antes > 0) nextRemove(0, Collections.nCopies(antes, CARGANDO));
+            if (size > 0) nextAdd(0, size);
+            endChange();
+        }, alFallar);
+    }
+
+    /**
+     * Vuelve a pedir solo las páginas cargadas en cuyo tramo de ids cae alguno de
+     * estos (cambiados, nuevos o borrados). Las demás no se tocan: las que no
+     * están en memoria ya se leerán frescas cuando se vean.
+     */
+    public void refrescar(Collection<Integer> ids) {
+        for (Map.Entry<Integer, List<Cliente>> e : new ArrayList<>(paginas.entrySet())) {
+            int p = e.getKey();
+            Integer desde = inicios.get(p);
+            if (desde == null) continue;
+            // La última página (corta) se queda también con los ids posteriores
+            Integer hasta = e.getValue().size() < pageSize ? null : inicios.get(p + 1);
+
+            for (int id : ids) {
+                if (id > desde && (hasta == null || id <= hasta)) {
+                    releer(p);
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Cliente get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Índice " + index + " fuera de [0, " + size + ")");
+        }
+        int p = index / pageSize;
+
+        // Precarga: la página siguiente en el sentido en que se mueve el usuario
+        int sentido = p >= ultimaPagina ? 1 : -1;
+        ultimaPagina = p;
+
+        List<Cliente> pagina = paginas.get(p);
+        if (pagina == null) cargar(p);
+        cargar(p + sentido);
+
+        int offset = index - p * pageSize;
+        // Con clientes borrados desde recargar() la página puede venir más corta
+        return pagina != null && offset < pagina.size() ? pagina.get(offset) : CARGANDO;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public void setAlCargarPagina(Consumer<List<Cliente>> alCargarPagina) {
+        this.alCargarPagina = alCargarPagina;
+    }
+
+    /** Páginas en memoria ahora mismo (para comprobar que la memoria está acotada). */
+    public int paginasEnMemoria() {
+        return paginas.size();
+    }
+
+    private int paginasTotales() {
+        return (size + pageSize - 1) / pageSize;
+    }
+
+    private void cargar(int p) {
+        if (p < 0 || p >= paginasTotales() || paginas.containsKey(p) || pendientes.containsKey(p)) {
+            return;
+        }
+        long gen = generacion;
+
+        // Página conocida más cercana por debajo (la 0 siempre lo es)
+        Map.Entry<Integer, Integer> base = inicios.floorEntry(p);
+        int paginaBase = base.getKey();
+        int despuesDe = base.getValue();
+        long saltar = (long) (p - paginaBase) * pageSize;
+
+        Task<List<Cliente>> task = tareas.ejecutar(() -> saltar == 0
+                ? dao.page(despuesDe, pageSize)
+                : dao.page(despuesDe, saltar, pageSize), filas -> {
+            pendientes.remove(p);
+            if (gen != generacion) return;
+            if (filas.isEmpty() && saltar > 0) {
+                // Salto más allá del final: la estimación era alta. Se recorta hasta la
+                // página de partida (aún sin leer), que al llegar dirá dónde acaba la tabla
+                redimensionar(Math.min(size, (paginaBase + 1) * pageSize));
+                return;
+            }
+            poner(p, filas);
+        }, e -> {
+            pendientes.remove(p);
+            alFallar.accept(e);
+        });
+        pendientes.put(p, task);
+    }
+
+    /** Vuelve a pedir una página cargada; mientras llega se sigue viendo la que había. */
+    private void releer(int p) {
+        Task<List<Cliente>> enVuelo = pendientes.remove(p);
+        if (enVuelo != null) enVuelo.cancel();   // salió antes del cambio
+        long gen = generacion;
+        int despuesDe = inicios.get(p);
+
+        Task<List<Cliente>> task = tareas.ejecutar(() -> dao.page(despuesDe, pageSize), filas -> {
+            pendientes.remove(p);
+            if (gen != generacion) return;
+
+            Integer finAntes = inicios.get(p + 1);
+            poner(p, filas);
+            // Si ahora acaba en otro id (alta o baja), la siguiente cargada queda descuadrada
+            if (!Objects.equals(finAntes, inicios.get(p + 1)) && paginas.containsKey(p + 1)) {
+                releer(p + 1);
+            }
+        }, e -> {
+            pendientes.remove(p);
+            alFallar.accept(e);
+        });
+        pendientes.put(p, task);
+    }
+
+    private void poner(int p, List<Cliente> filas) {
+        paginas.put(p, filas);
+        if (!filas.isEmpty()) {
+            // Si se llegó saltando, el inicio de esta página no se conocía. La 0 siempre
+            // lo tiene, así que first - 1 no desborda (hay ids anteriores)
+            if (!inicios.containsKey(p)) inicios.put(p, filas.get(0).getId() - 1);
+            inicios.put(p + 1, filas.get(filas.size() - 1).getId());
+        }
+
+        int desde = p * pageSize;
+        int hasta = Math.min(size, desde + pageSize);
+        if (desde < hasta) {
+            beginChange();
+            nextReplace(desde, hasta, Collections.nCopies(hasta - desde, CARGANDO));
+            endChange();
+        }
+
+        // La estimación se corrige al ver el final: página corta = aquí acaba la tabla;
+        // última página llena = hay al menos otra más
+        if (filas.size() < pageSize) {
+            redimensionar(desde + filas.size());
+        } else if (desde + pageSize >= size) {
+            redimensionar(desde + 2 * pageSize);
+        }
+
+        if (!filas.isEmpty()) alCargarPagina.accept(filas);
+    }
+
+    private void redimensionar(int nuevo) {
+        if (nuevo == size) return;
+        int antes = size;
+        size = nuevo;
+
+        // Las páginas que quedan fuera ya no valen
+        paginas.keySet().removeIf(p -> p >= paginasTotales());
+
+        beginChange();
+        if (nuevo < antes) {
+            nextRemove(nuevo, Collections.nCopies(antes - nuevo, CARGANDO));
+        } else {
+            nextAdd(antes, nuevo);
+        }
+        endChange();
+    }
+}
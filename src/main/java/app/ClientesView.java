@@ -1,9 +1,14 @@
 package app;
 
 import dao.ClienteDAO;
+import db.InvalidationBus;
 import model.Cliente;
 
+import javafx.animation.Animation;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.Parent;
@@ -11,35 +16,46 @@ import javafx.scene.control.*;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
+import javafx.util.Duration;
 
-import java.sql.SQLException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import dao.ClienteDAO;
 import model.Cliente;
 import model.DetalleCliente;
+import services.BuscadorClientes;
 import services.ClienteDetalle;
+import services.ClienteSearchIndex;
+import services.DetalleClienteCache;
 import dao.DetalleClienteDAO;
 import model.DetalleCliente;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * Vista JavaFX para gestionar clientes.
  *
- * Versión preparada para trabajar más adelante con DetalleCliente,
- * pero de momento:
- *  - SOLO usa ClienteDAO (insert, findById, findAll).
- *  - La tabla muestra únicamente datos de Cliente (id, nombre, email).
- *  - Los campos de detalle (dirección, teléfono, notas) se muestran en el
- *    formulario, pero aún NO se guardan en BD.
+ *  - La tabla muestra los datos de Cliente (id, nombre, email); el detalle
+ *    (dirección, teléfono, notas) se carga al seleccionar un cliente.
+ *  - Guardar inserta o actualiza cliente + detalle en una transacción, y
+ *    Borrar elimina los dos (ClienteDetalle).
  *
- * Cuando exista DetalleClienteDAO, podrás:
- *  - Cargar el detalle al seleccionar un cliente.
- *  - Guardar/actualizar detalle junto con el cliente.
- *  - Borrar detalle cuando borres un cliente.
+ * Todas las consultas a la BD van por TareasFondo (fuera del hilo de JavaFX);
+ * la ventana sigue respondiendo aunque la BD vaya lenta.
+ *
+ * El filtro se aplica mientras se escribe sobre un índice de trigramas en memoria
+ * (ClienteSearchIndex) con todos los clientes; hasta que está listo, y con el
+ * botón Buscar, se busca en la BD.
+ *
+ * Los cambios que hacen otros nodos llegan por InvalidationBus: se sacan de
+ * las cachés y, como mucho cada RECARGA_REMOTA_MS, se vuelven a pedir solo las
+ * páginas cargadas donde caen esos ids (todo, solo con 'tabla:*' o al reconectar).
  */
 public class ClientesView {
 
@@ -49,13 +65,49 @@ public class ClientesView {
     private final ClienteDetalle clienteService = new ClienteDetalle();
     private final DetalleClienteDAO detalleClienteDAO = new DetalleClienteDAO();
 
-    // Caché en memoria: idCliente -> detalle
-    private final Map<Integer, DetalleCliente> cacheDetalles = new HashMap<>();
-
-
-    // Tabla y datos
+    // Detalles bajo demanda (selección y filas visibles), con tope de memoria
+    private final DetalleClienteCache cacheDetalles = new DetalleClienteCache(detalleClienteDAO);
+
+    // Filas alrededor de la seleccionada cuyos detalles se precargan
+    private static final int VECINOS_PRECARGA = 25;
+
+    // Las consultas a la BD se hacen fuera del hilo de JavaFX
+    private final TareasFondo tareas = new TareasFondo();
+
+    // Última carga/búsqueda que rellena la tabla: si llega otra, esta se cancela
+    private Task<?> tareaListado;
+    private String filtroEnCurso;   // filtro de tareaListado si es una búsqueda
+
+    // Búsqueda mientras se escribe: se espera a que el usuario pare DEBOUNCE_MS
+    private static final int DEBOUNCE_MS = 300;
+    private final PauseTransition esperaTecleo = new PauseTransition(Duration.millis(DEBOUNCE_MS));
+
+    // Caché por prefijo + agrupación de búsquedas iguales
+    private final BuscadorClientes buscador = new BuscadorClientes(clienteDAO);
+
+    // Índice de trigramas con id, nombre y email de todos los clientes, para filtrar
+    // mientras se escribe sin ir a la BD. Se llena en segundo plano con un cursor (la
+    // tabla sigue paginada); null hasta la primera carga.
+    private static final int MAX_FILTRADOS = 1000;
+    private ClienteSearchIndex indiceBusqueda;
+    private Task<ClienteSearchIndex> tareaIndice;
+    // Ids escritos mientras se llena el índice: el cursor puede haberlos leído antes
+    private final Set<Integer> cambiadosDuranteIndice = new HashSet<>();
+
+    // Cambios de otros nodos (LISTEN/NOTIFY): se acumulan y se aplican juntos
+    private static final int RECARGA_REMOTA_MS = 500;
+    private final PauseTransition recargaRemota = new PauseTransition(Duration.millis(RECARGA_REMOTA_MS));
+    private final List<InvalidationBus.Suscripcion> suscripciones = new ArrayList<>();
+    private final Set<Integer> clientesCambiados = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> detallesCambiados = ConcurrentHashMap.newKeySet();
+    private volatile boolean recargarClientes;   // no se sabe qué ids: se recarga todo
+
+    // Tabla y datos: sin filtro, la tabla muestra 'paginados' (solo las páginas
+    // visibles están en memoria); con filtro, los resultados de la búsqueda en 'datos'
     private final TableView<Cliente> tabla = new TableView<>();
     private final ObservableList<Cliente> datos = FXCollections.observableArrayList();
+    private final ClientesPaginados paginados =
+            new ClientesPaginados(clienteDAO, tareas, e -> mostrarError("Error al cargar clientes", e));
 
     // Campos de formulario (Cliente)
     private final TextField txtId = new TextField();
@@ -78,12 +130,16 @@ public class ClientesView {
     private final Button    btnBuscar          = new Button("Buscar");
     private final Button    btnLimpiarBusqueda = new Button("Limpiar");
 
+    // Visible mientras haya consultas en marcha
+    private final ProgressIndicator progreso = new ProgressIndicator();
+
 
 
     public ClientesView() {
         configurarTabla();
         configurarFormulario();
         configurarEventos();
+        escucharCambios();
         recargarDatos(); // al iniciar la vista cargamos los clientes
     }
 
@@ -91,6 +147,15 @@ public class ClientesView {
         return root;
     }
 
+    /** Deja de escuchar cambios y para los hilos de fondo (al cerrar la ventana). */
+    public void cerrar() {
+        InvalidationBus bus = InvalidationBus.get();
+        suscripciones.forEach(bus::cancelar);
+        suscripciones.clear();
+        recargaRemota.stop();
+        tareas.cerrar();
+    }
+
     /* =========================================================
        CONFIGURACIÓN INTERFAZ
        ========================================================= */
@@ -98,7 +163,8 @@ public class ClientesView {
     private void configurarTabla() {
         TableColumn<Cliente, Number> colId = new TableColumn<>("ID");
         colId.setCellValueFactory(c ->
-                new javafx.beans.property.SimpleIntegerProperty(c.getValue().getId()));
+                // ObjectWrapper y no IntegerProperty: las filas aún sin cargar tienen id null
+                new javafx.beans.property.ReadOnlyObjectWrapper<Number>(c.getValue().getId()));
 
         TableColumn<Cliente, String> colNombre = new TableColumn<>("Nombre");
         colNombre.setCellValueFactory(c ->
@@ -111,28 +177,33 @@ public class ClientesView {
         // Columnas “placeholder” para DetalleCliente
         TableColumn<Cliente, String> colDireccion = new TableColumn<>("Dirección");
         colDireccion.setCellValueFactory(c -> {
-            DetalleCliente d = cacheDetalles.get(c.getValue().getId());
+            DetalleCliente d = detalleEnCache(c.getValue());
             String valor = (d != null) ? d.getDireccion() : "";
             return new javafx.beans.property.SimpleStringProperty(valor);
         });
 
         TableColumn<Cliente, String> colTelefono = new TableColumn<>("Teléfono");
         colTelefono.setCellValueFactory(c -> {
-            DetalleCliente d = cacheDetalles.get(c.getValue().getId());
+            DetalleCliente d = detalleEnCache(c.getValue());
             String valor = (d != null) ? d.getTelefono() : "";
             return new javafx.beans.property.SimpleStringProperty(valor);
         });
 
         TableColumn<Cliente, String> colNotas = new TableColumn<>("Notas");
         colNotas.setCellValueFactory(c -> {
-            DetalleCliente d = cacheDetalles.get(c.getValue().getId());
+            DetalleCliente d = detalleEnCache(c.getValue());
             String valor = (d != null) ? d.getNotas() : "";
             return new javafx.beans.property.SimpleStringProperty(valor);
         });
 
         tabla.getColumns().addAll(colId, colNombre, colEmail,
                 colDireccion, colTelefono, colNotas);
-        tabla.setItems(datos);
+        tabla.setItems(paginados);
+
+        // La lista paginada no se puede ordenar en memoria: la ordenación por defecto
+        // copiaría la lista (pidiendo todas las páginas) y luego fallaría en setAll.
+        // Solo se ordenan los resultados de búsqueda (ver mostrarTodos/mostrarResultados).
+        tabla.setSortPolicy(t -> t.getItems() != paginados && TableView.DEFAULT_SORT_POLICY.call(t));
 
         root.setCenter(tabla);
     }
@@ -172,8 +243,11 @@ public class ClientesView {
         botonesCrud.setPadding(new Insets(10, 0, 0, 0));
 
         // Zona de búsqueda
+        progreso.setPrefSize(20, 20);
+        progreso.visibleProperty().bind(tareas.ocupadoProperty());
+
         HBox zonaBusqueda = new HBox(10,
-                new Label("Buscar:"), txtBuscar, btnBuscar, btnLimpiarBusqueda);
+                new Label("Buscar:"), txtBuscar, btnBuscar, btnLimpiarBusqueda, progreso);
         zonaBusqueda.setPadding(new Insets(10, 0, 10, 0));
 
         BorderPane bottom = new BorderPane();
@@ -187,23 +261,22 @@ public class ClientesView {
     private void configurarEventos() {
         // Cuando seleccionamos una fila en la tabla, pasamos los datos al formulario
         tabla.getSelectionModel().selectedItemProperty().addListener((obs, oldSel, newSel) -> {
-            if (newSel != null) {
+            if (newSel != null && !ClientesPaginados.esMarcador(newSel)) {
                 // Cliente
                 txtId.setText(String.valueOf(newSel.getId()));
                 txtNombre.setText(newSel.getNombre());
                 txtEmail.setText(newSel.getEmail());
                 txtId.setDisable(true); // al editar, de momento, no dejamos cambiar el ID
 
-                // DetalleCliente (cuando exista DetalleClienteDAO se cargará desde BD)
-                // TODO: cuando implementéis DetalleClienteDAO, aquí:
-                //   - detalleDAO.findById(newSel.getId())
-                //   - rellenar txtDireccion, txtTelefono, txtNotas con sus valores
-                txtDireccion.clear();
-                txtTelefono.clear();
-                txtNotas.clear();
+                // DetalleCliente: de la caché o, si no está, de la BD en segundo plano
+                mostrarDetalleDe(newSel.getId());
+                precargarVecinos(tabla.getSelectionModel().getSelectedIndex());
             }
         });
 
+        // Cada página que llega a la tabla trae también sus detalles (una consulta)
+        paginados.setAlCargarPagina(this::precargarDetalles);
+
         btnNuevo.setOnAction(e -> limpiarFormulario());
 
         btnGuardar.setOnAction(e -> guardarCliente());
@@ -215,7 +288,22 @@ public class ClientesView {
             recargarDatos();
         });
 
-        btnBuscar.setOnAction(e -> buscarClientesEnBBDD());
+        // El botón sigue yendo a la BD (resultados ordenados por parecido)
+        btnBuscar.setOnAction(e -> {
+            esperaTecleo.stop();
+            buscarClientesEnBBDD();
+        });
+
+        // Búsqueda en vivo: con el índice (o si la caché ya tiene la respuesta) se
+        // muestra al momento; si no, se consulta la BD cuando el usuario deja de escribir
+        txtBuscar.textProperty().addListener((obs, antes, ahora) -> {
+            if (filtrarEnMemoria(ahora.trim()) || mostrarDesdeCache(ahora.trim())) {
+                esperaTecleo.stop();
+            } else {
+                esperaTecleo.playFromStart();
+            }
+        });
+        esperaTecleo.setOnFinished(e -> buscarClientesEnBBDD());
 
         btnLimpiarBusqueda.setOnAction(e -> {
             txtBuscar.clear();
@@ -228,80 +316,307 @@ public class ClientesView {
        ========================================================= */
 
     /**
-     * Carga todos los clientes desde la BD usando ClienteDAO.findAll()
+     * Vuelve a mostrar todos los clientes desde la BD.
+     *
+     * Ya no hay findAll(): la tabla pasa a la lista paginada, que solo estima
+     * cuántos clientes hay; las filas se piden por páginas al hacer scroll.
+     * Los detalles tampoco se cargan aquí: llegan con cada página o al seleccionar.
+     * El índice de búsqueda se vuelve a llenar en segundo plano.
      */
     private void recargarDatos() {
-        try {
-            // 1) Cargar todos los clientes
-            List<Cliente> clientes = clienteDAO.findAll();
+        cacheDetalles.invalidarTodo();
+        mostrarTodos();
+        paginados.recargar();
+        reconstruirIndice();
+    }
+
+    /* =========================================================
+       ÍNDICE DE BÚSQUEDA EN MEMORIA
+       ========================================================= */
 
-            // 2) Cargar todos los detalles
-            List<DetalleCliente> detalles = detalleClienteDAO.findAll();
+    /**
+     * Llena un índice nuevo recorriendo la tabla con un cursor (sin findAll) y lo
+     * pone en lugar del anterior, que se sigue usando mientras tanto.
+     */
+    private void reconstruirIndice() {
+        if (tareaIndice != null) {
+            tareaIndice.cancel();
+        }
+        cambiadosDuranteIndice.clear();
+
+        tareaIndice = tareas.ejecutar(() -> {
+            ClienteSearchIndex nuevo = new ClienteSearchIndex();
+            clienteDAO.stream(nuevo::guardar);
+            return nuevo;
+        }, nuevo -> {
+            tareaIndice = null;
+            indiceBusqueda = nuevo;
+            if (!cambiadosDuranteIndice.isEmpty()) {
+                actualizarIndice(new ArrayList<>(cambiadosDuranteIndice));
+                cambiadosDuranteIndice.clear();
+            } else if (tabla.getItems() != paginados) {
+                reaplicarFiltro();
+            }
+        }, e -> {
+            tareaIndice = null;
+            mostrarError("Error al crear el índice de búsqueda", e);
+        });
+    }
+
+    /** Vuelve a leer esos clientes (una consulta) y los pone o quita del índice. */
+    private void actualizarIndice(Collection<Integer> ids) {
+        if (tareaIndice != null) {
+            cambiadosDuranteIndice.addAll(ids);
+        }
+        ClienteSearchIndex indice = indiceBusqueda;
+        if (indice == null) {
+            return;
+        }
 
-            // 3) Rellenar la caché id -> detalle
-            cacheDetalles.clear();
-            for (DetalleCliente d : detalles) {
-                cacheDetalles.put(d.getId(), d);
+        tareas.ejecutar(() -> {
+            indice.actualizar(ids, clienteDAO.findByIds(ids));
+            return indice;
+        }, i -> {
+            if (tabla.getItems() != paginados) {
+                reaplicarFiltro();   // mismo filtro, resultados nuevos
             }
+        }, e -> mostrarError("Error al actualizar el índice de búsqueda", e));
+    }
 
-            // 4) Refrescar la tabla
-            datos.setAll(clientes);
+    /** Filtra con el índice si ya está cargado. Devuelve false si no lo está. */
+    private boolean filtrarEnMemoria(String filtro) {
+        if (indiceBusqueda == null) {
+            return false;
+        }
+        if (filtro.isEmpty()) {
+            mostrarTodos();
+            return true;
+        }
+        cancelarListado();
+        mostrarResultados(indiceBusqueda.buscar(filtro, MAX_FILTRADOS));
+        return true;
+    }
 
-        } catch (SQLException e) {
-            mostrarError("Error al recargar datos", e);
+    /** Reaplica el filtro escrito: en memoria si hay índice, si no en la BD. */
+    private void reaplicarFiltro() {
+        esperaTecleo.stop();
+        if (!filtrarEnMemoria(txtBuscar.getText().trim())) {
+            buscarClientesEnBBDD();
         }
     }
 
+    /* =========================================================
+       CAMBIOS DE OTROS NODOS
+       ========================================================= */
 
     /**
-     * Búsqueda de momento hecha EN MEMORIA.
-     *
-     * Se carga toda la lista (findAll) y se filtra con streams.
-     * Más adelante se puede cambiar para que use ClienteDAO.search()
-     * cuando lo implementéis.
+     * Los avisos llegan en el hilo del bus: ahí solo se invalida y se apunta qué
+     * ha cambiado; la recarga se hace después en el hilo de JavaFX.
      */
-    private void buscarClientesEnMemoria() {
-        String filtro = txtBuscar.getText().trim();
-        if (filtro.isEmpty()) {
-            recargarDatos();
+    private void escucharCambios() {
+        InvalidationBus bus = InvalidationBus.get();
+
+        suscripciones.add(bus.suscribir("cliente",
+                id -> {
+                    clientesCambiados.add(id);
+                    programarRecargaRemota();
+                },
+                this::marcarClientesCambiados));
+
+        suscripciones.add(bus.suscribir("detalle_cliente",
+                id -> {
+                    // Solo interesa volver a pedir los que teníamos cargados
+                    if (cacheDetalles.estaEnCache(id)) {
+                        cacheDetalles.invalidar(id);
+                        detallesCambiados.add(id);
+                        programarRecargaRemota();
+                    }
+                },
+                () -> {
+                    cacheDetalles.invalidarTodo();
+                    marcarClientesCambiados();   // se recargan las páginas y con ellas los detalles
+                }));
+
+        recargaRemota.setOnFinished(e -> aplicarCambiosRemotos());
+    }
+
+    private void marcarClientesCambiados() {
+        recargarClientes = true;
+        programarRecargaRemota();
+    }
+
+    // Sin playFromStart: con avisos continuos se recarga cada RECARGA_REMOTA_MS, no nunca
+    private void programarRecargaRemota() {
+        Platform.runLater(() -> {
+            if (recargaRemota.getStatus() != Animation.Status.RUNNING) {
+                recargaRemota.play();
+            }
+        });
+    }
+
+    private void aplicarCambiosRemotos() {
+        boolean todos = recargarClientes;
+        recargarClientes = false;
+        List<Integer> cambiados = new ArrayList<>(clientesCambiados);
+        clientesCambiados.removeAll(cambiados);
+
+        if (todos || !cambiados.isEmpty()) {
+            buscador.invalidar();
+            // Con índice, el filtro se reaplica cuando este se ha puesto al día
+            if (todos) {
+                reconstruirIndice();
+            } else {
+                actualizarIndice(cambiados);
+            }
+            if (tabla.getItems() != paginados) {
+                if (indiceBusqueda == null) {
+                    reaplicarFiltro();   // misma búsqueda, resultados nuevos
+                }
+            } else if (todos) {
+                paginados.recargar();
+            } else {
+                paginados.refrescar(cambiados);
+            }
+        }
+
+        if (!detallesCambiados.isEmpty()) {
+            List<Integer> ids = new ArrayList<>(detallesCambiados);
+            detallesCambiados.removeAll(ids);
+            tareas.ejecutar(() -> cacheDetalles.precargar(ids), n -> tabla.refresh(),
+                    e -> mostrarError("Error al cargar detalles", e));
+        }
+    }
+
+    /* =========================================================
+       DETALLE_CLIENTE BAJO DEMANDA
+       ========================================================= */
+
+    private DetalleCliente detalleEnCache(Cliente c) {
+        return c.getId() == null ? null : cacheDetalles.enCache(c.getId());
+    }
+
+    /** Rellena los campos de detalle del cliente seleccionado. */
+    private void mostrarDetalleDe(int id) {
+        if (cacheDetalles.estaEnCache(id)) {
+            rellenarDetalle(cacheDetalles.enCache(id));
             return;
         }
 
-        try {
-            List<Cliente> lista = clienteDAO.findAll();
-            String f = filtro.toLowerCase();
-
-            List<Cliente> filtrados = lista.stream()
-                    .filter(c ->
-                            String.valueOf(c.getId()).contains(f) ||
-                                    c.getNombre().toLowerCase().contains(f) ||
-                                    c.getEmail().toLowerCase().contains(f)
-                    )
-                    .collect(Collectors.toList());
-
-            datos.setAll(filtrados);
-        } catch (SQLException e) {
-            mostrarError("Error al buscar clientes", e);
+        txtDireccion.clear();
+        txtTelefono.clear();
+        txtNotas.clear();
+        tareas.ejecutar(() -> cacheDetalles.get(id), d -> {
+            // Si mientras tanto se ha seleccionado otro cliente, esto ya no vale
+            Cliente sel = tabla.getSelectionModel().getSelectedItem();
+            if (sel != null && sel.getId() != null && sel.getId() == id) {
+                rellenarDetalle(d);
+            }
+        }, e -> mostrarError("Error al cargar el detalle", e));
+    }
+
+    private void rellenarDetalle(DetalleCliente d) {
+        txtDireccion.setText(d != null ? d.getDireccion() : "");
+        txtTelefono.setText(d != null ? d.getTelefono() : "");
+        txtNotas.setText(d != null ? d.getNotas() : "");
+    }
+
+    /** Precarga los detalles de las filas que rodean a la seleccionada. */
+    private void precargarVecinos(int indice) {
+        List<Cliente> items = tabla.getItems();
+        if (indice < 0) return;
+
+        List<Cliente> vecinos = new ArrayList<>();
+        int desde = Math.max(0, indice - VECINOS_PRECARGA);
+        int hasta = Math.min(items.size(), indice + VECINOS_PRECARGA + 1);
+        for (int i = desde; i < hasta; i++) {
+            vecinos.add(items.get(i));
+        }
+        precargarDetalles(vecinos);
+    }
+
+    /** Trae en una consulta los detalles que falten de esas filas y repinta la tabla. */
+    private void precargarDetalles(List<Cliente> filas) {
+        List<Integer> ids = new ArrayList<>();
+        for (Cliente c : filas) {
+            if (c.getId() != null && !cacheDetalles.estaEnCache(c.getId())) ids.add(c.getId());
         }
+        if (ids.isEmpty()) return;
+
+        tareas.ejecutar(() -> cacheDetalles.precargar(ids), n -> tabla.refresh(),
+                e -> mostrarError("Error al cargar detalles", e));
+    }
+
+    /**
+     * Lanza una consulta que rellena la tabla. Si había otra pendiente (una
+     * búsqueda anterior, una recarga) se cancela para que su resultado, ya
+     * obsoleto, no pise al nuevo.
+     */
+    private <T> void listar(Callable<T> consulta, Consumer<T> mostrar, String tituloError) {
+        cancelarListado();
+        tareaListado = tareas.ejecutar(consulta, mostrar, e -> mostrarError(tituloError, e));
+    }
+
+    private void cancelarListado() {
+        if (tareaListado != null) {
+            tareaListado.cancel();
+            tareaListado = null;
+        }
+        filtroEnCurso = null;
+    }
+
+
+    /** Sin filtro: la tabla vuelve a la lista paginada con todos los clientes. */
+    private void mostrarTodos() {
+        cancelarListado();   // lo que se está escribiendo manda sobre búsquedas anteriores
+        tabla.getSortOrder().clear();
+        setColumnasOrdenables(false);
+        tabla.setItems(paginados);
+    }
+
+    private void setColumnasOrdenables(boolean ordenables) {
+        tabla.getColumns().forEach(c -> c.setSortable(ordenables));
+    }
+
+    private void mostrarResultados(List<Cliente> resultados) {
+        datos.setAll(resultados);
+        tabla.setItems(datos);
+        setColumnasOrdenables(true);
+        precargarDetalles(resultados);
     }
 
 
+    /**
+     * Búsqueda en la BD (ClienteDAO.search, con ranking y límite) a través de
+     * BuscadorClientes: si la caché tiene la respuesta no hay consulta, y si ya
+     * hay una consulta en vuelo con el mismo filtro no se lanza otra.
+     */
     private void buscarClientesEnBBDD(){
         String filtro = txtBuscar.getText().trim();
 
-        if ((filtro.isEmpty())){
-            recargarDatos();
+        if (mostrarDesdeCache(filtro)) {
             return;
         }
+        if (filtro.equals(filtroEnCurso) && tareaListado != null && !tareaListado.isDone()) {
+            return;   // la misma búsqueda ya está en marcha
+        }
 
-        try {
-            List<Cliente> lista = clienteDAO.search(filtro);
-            datos.setAll(lista);
+        listar(() -> buscador.buscar(filtro), this::mostrarResultados, "Error al buscar");
+        filtroEnCurso = filtro;
+    }
 
-        } catch (SQLException e){
-            mostrarError("Error al buscar", e);
+    /** Muestra el resultado si se puede sin ir a la BD (filtro vacío o en caché). */
+    private boolean mostrarDesdeCache(String filtro) {
+        if (filtro.isEmpty()) {
+            mostrarTodos();
+            return true;
         }
-
+        List<Cliente> enCache = buscador.enCache(filtro);
+        if (enCache == null) {
+            return false;
+        }
+        cancelarListado();
+        mostrarResultados(enCache);
+        return true;
     }
 
     private void limpiarFormulario() {
@@ -316,14 +631,10 @@ public class ClientesView {
     }
 
     /**
-     * Guardar cliente:
-     *  - Si no existe en la BD → INSERT usando ClienteDAO.insert()
-     *  - Si existe → por ahora solo muestra un aviso.
-     *
-     * NOTA:
-     *  - Los datos de detalle (dirección, teléfono, notas) todavía NO se guardan.
-     *  - Cuando tengáis DetalleClienteDAO y/o ClienteService, aquí se podrá:
-     *       insertar/actualizar también el detalle en una transacción.
+     * Guardar cliente (siempre cliente + detalle en una transacción):
+     *  - Editando uno de la tabla (ID bloqueado) → UPDATE con
+     *    ClienteDetalle.actualizarClienteCompleto (upsert de las dos filas).
+     *  - Nuevo → INSERT con guardarClienteCompleto; si el ID ya existe, aviso.
      */
     private void guardarCliente() {
         // Con ID manual, vuelve a ser obligatorio
@@ -359,47 +670,62 @@ public class ClientesView {
                 txtNotas.getText().trim()
         );
 
-        try {
+        // Mientras se guarda no se puede volver a pulsar Guardar
+        btnGuardar.setDisable(true);
+
+        boolean editando = txtId.isDisabled();
+
+        tareas.ejecutar(() -> {
+            if (editando) {
+                clienteService.actualizarClienteCompleto(c, d);
+                return true;
+            }
+
             // Comprobamos en BD si ese ID ya existe
             Cliente existente = clienteDAO.findById(id);
 
             if (existente == null) {
                 // INSERT de cliente + detalle en UNA transacción
                 clienteService.guardarClienteCompleto(c, d);
+                return true;
+            }
+            return false;
+
+        }, guardado -> {
+            btnGuardar.setDisable(false);
 
-                mostrarInfo("Insertado",
-                        "Cliente y detalle creados correctamente.");
+            if (guardado) {
+                // Se refresca la caché, se recalculan las páginas y se reaplica el filtro
+                recargarTrasEscribir(id);
+
+                mostrarInfo(editando ? "Actualizado" : "Insertado",
+                        editando ? "Cliente y detalle actualizados correctamente."
+                                 : "Cliente y detalle creados correctamente.");
             } else {
-                // Recoge el UPDATE
-                mostrarAlerta("Actualizar pendiente",
-                        "El cliente ya existe.\n" +
-                                "Más adelante aquí haremos UPDATE desde el Service.");
+                mostrarAlerta("ID repetido",
+                        "Ya existe un cliente con ID " + id + ".\n" +
+                                "Selecciónalo en la tabla para modificarlo.");
             }
 
-            recargarDatos();
             limpiarFormulario();
 
-        } catch (SQLException e) {
+        }, e -> {
+            btnGuardar.setDisable(false);
             mostrarError("Error al guardar cliente y detalle", e);
-        }
+        });
     }
 
 
 
     /**
-     * Borrar cliente seleccionado.
-     * De momento solo muestra un aviso con un TODO.
-     *
-     * Cuando implementéis ClienteDAO.deleteById(int id),
-     * se puede llamar aquí a ese método.
-     *
-     * Y cuando exista DetalleClienteDAO, sería buena idea borrar primero
-     * el detalle del cliente y luego el cliente (o usar ON DELETE CASCADE
-     * + transacción en un Service).
+     * Borrar cliente seleccionado: detalle y cliente en una transacción
+     * (ClienteDetalle.borrarClienteCompleto). Si tiene pedidos, la FK lo
+     * impide y se muestra el error.
      */
     private void borrarClienteSeleccionado() {
         Cliente sel = tabla.getSelectionModel().getSelectedItem();
-        if (sel == null) {
+        // Una fila que aún no ha llegado de la BD (CARGANDO) no tiene id
+        if (sel == null || ClientesPaginados.esMarcador(sel)) {
             mostrarAlerta("Sin selección", "Selecciona un cliente en la tabla.");
             return;
         }
@@ -412,21 +738,42 @@ public class ClientesView {
             return;
         }
 
-        // TODO: implementar ClienteDAO.deleteById(int id) y llamarlo aquí.
-        // TODO futuro: cuando haya DetalleClienteDAO, borrar primero detalle,
-        //  después cliente, o delegarlo todo a ClienteService.deleteClienteCompleto(id).
+        int id = sel.getId();
+        btnBorrar.setDisable(true);
 
-        mostrarAlerta("Borrado pendiente",
-                "Aún no existe deleteById en ClienteDAO.\n" +
-                        "Cuando lo implementemos, aquí se llamará al método.");
+        tareas.ejecutar(() -> clienteService.borrarClienteCompleto(id), borrados -> {
+            btnBorrar.setDisable(false);
+            recargarTrasEscribir(id);
+            limpiarFormulario();
 
+            if (borrados > 0) {
+                mostrarInfo("Borrado", "Cliente " + id + " eliminado.");
+            } else {
+                mostrarAlerta("No encontrado", "El cliente " + id + " ya no existe.");
+            }
+        }, e -> {
+            btnBorrar.setDisable(false);
+            mostrarError("Error al borrar el cliente (¿tiene pedidos?)", e);
+        });
+    }
+
+    /** Tras escribir un cliente: fuera de la caché, su página e índice de nuevo y filtro reaplicado. */
+    private void recargarTrasEscribir(int id) {
+        cacheDetalles.invalidar(id);
+        paginados.refrescar(List.of(id));
+        buscador.invalidar();
+        if (indiceBusqueda != null) {
+            actualizarIndice(List.of(id));   // reaplica el filtro al terminar
+        } else {
+            reaplicarFiltro();
+        }
     }
 
     /* =========================================================
        DIÁLOGOS AUXILIARES
        ========================================================= */
 
-    private void mostrarError(String titulo, Exception e) {
+    private void mostrarError(String titulo, Throwable e) {
         e.printStackTrace();
         Alert alert = new Alert(Alert.AlertType.ERROR);
         alert.setTitle("Error");
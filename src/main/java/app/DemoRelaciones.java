@@ -1,15 +1,28 @@
 package app;
 
 import dao.*;
+import db.InvalidationBus;
+import db.SqlScripts;
 import model.*;
+import services.CachingDAO;
+import services.ClienteDetalle;
+import services.CopyImporter;
+import services.IncrementalBackup;
 import services.JsonIO;
+import services.ParallelExporter;
+import services.SnapshotLoader;
+import services.SnapshotTable;
+import services.StreamingExporter;
+import services.StreamingImporter;
 
 import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Demo por consola:
@@ -26,6 +39,15 @@ public class DemoRelaciones {
     // Ruta del JSON de exportación/importación
     private static final File JSON_FILE = new File("data", "lampreasvioleta_export.json");
 
+    // Carpeta de la exportación en paralelo (un fichero por tabla)
+    private static final File EXPORT_DIR = new File("data", "export_paralelo");
+
+    // Carpeta de las copias incrementales (manifest + base + deltas)
+    private static final File BACKUP_DIR = new File("data", "backup");
+
+    // Envíos por consulta al listarlos
+    private static final int PAGINA_ENVIOS = 500;
+
     //Cada DAO se encarga de las operaciones CRUD (Create, Read, Update, Delete) de una tabla específica.
     private static final ClienteDAO clienteDAO = new ClienteDAO();
     private static final DetalleClienteDAO detalleClienteDAO = new DetalleClienteDAO();
@@ -36,7 +58,19 @@ public class DemoRelaciones {
     private static final RepartidorDAO repartidorDAO = new RepartidorDAO();
     private static final EnvioDAO envioDAO = new EnvioDAO();
 
+    // Producto, comercial y repartidor cambian poco: las lecturas pasan por una caché
+    private static final CachingDAO<Producto> productos =
+            new CachingDAO<>(productoDAO::findById, productoDAO::findAll, Producto::getId);
+    private static final CachingDAO<Comercial> comerciales =
+            new CachingDAO<>(comercialDAO::findById, comercialDAO::findAll, Comercial::getId);
+    private static final CachingDAO<Repartidor> repartidores =
+            new CachingDAO<>(repartidorDAO::findById, repartidorDAO::findAll, Repartidor::getId);
+
+    private static final ClienteDetalle clienteService = new ClienteDetalle();
+
     public static void main(String[] args) {
+        escucharCambios();
+
         try (Scanner sc = new Scanner(System.in)) {
 
             while (true) {
@@ -86,7 +120,19 @@ public class DemoRelaciones {
 
                         // ---------------- JSON EXPORT / IMPORT ------------
                         case "23" -> exportarJson();
-                        case "24" -> importarJson();
+                        case "24" -> importarJson(CopyImporter.Mode.INSERT);
+                        case "25" -> importarJson(CopyImporter.Mode.UPSERT);
+                        case "26" -> importarJsonPorBloques(CopyImporter.Mode.INSERT);
+                        case "27" -> exportarJsonParalelo();
+                        case "28" -> backupIncremental();
+                        case "29" -> restaurarBackup();
+
+                        // ------------------- MANTENIMIENTO -------------------
+                        case "30" -> crearIndicesBusqueda();
+                        case "31" -> instalarAvisosCambios();
+                        case "32" -> cargarEnMemoria();
+                        case "33" -> mostrarClienteCompleto(sc);
+                        case "34" -> importarJsonPorBloques(CopyImporter.Mode.UPSERT);
 
                         case "0" -> {
                             System.out.println("FIN.");
@@ -153,6 +199,16 @@ public class DemoRelaciones {
         System.out.println("JSON");
         System.out.println("  21 - Exportar BD a JSON");
         System.out.println("  22 - Importar JSON a BD (INSERT en orden FK)");
+        System.out.println("  25 - Importar JSON a BD (UPSERT: staging + merge)");
+        System.out.println("  26 - Importar JSON a BD por bloques (reanudable)");
+        System.out.println("  27 - Exportar BD en paralelo (un JSON por tabla)");
+        System.out.println("  28 - Backup incremental (base la primera vez, luego deltas)");
+        System.out.println("  29 - Restaurar backup incremental (base + deltas)");
+        System.out.println("  30 - Crear índices (búsqueda pg_trgm y claves ajenas)");
+        System.out.println("  31 - Instalar avisos de cambios (triggers NOTIFY para las cachés)");
+        System.out.println("  32 - Cargar la BD entera en memoria (tablas en paralelo)");
+        System.out.println("  33 - Ficha completa de un cliente (detalle, pedidos y envíos)");
+        System.out.println("  34 - Importar JSON a BD por bloques (UPSERT: actualiza los ids que ya existen)");
         System.out.println();
         System.out.println("  0  - Salir");
         System.out.println("=========================================");
@@ -183,8 +239,37 @@ public class DemoRelaciones {
     private static void buscarClientePorId(Scanner sc) throws SQLException {
         System.out.print("id: ");
         int id = Integer.parseInt(sc.nextLine().trim());
-        Cliente c = clienteDAO.findById(id);
+
+        // Cliente y detalle no dependen uno del otro: las dos consultas a la vez
+        CompletableFuture<Cliente> cliente = AsyncDAO.supply(() -> clienteDAO.findById(id));
+        CompletableFuture<DetalleCliente> detalle = AsyncDAO.supply(() -> detalleClienteDAO.findById(id));
+
+        Cliente c = AsyncDAO.join(cliente);
+        DetalleCliente d = AsyncDAO.join(detalle);
         System.out.println(c == null ? "No encontrado." : c);
+        if (c != null && d != null) System.out.println("  " + d);
+    }
+
+    /** Cliente con todo lo suyo, en una sola consulta (ClienteDetalle.cargarClienteCompleto). */
+    private static void mostrarClienteCompleto(Scanner sc) throws SQLException {
+        System.out.print("id: ");
+        int id = Integer.parseInt(sc.nextLine().trim());
+
+        ClienteCompleto cc = clienteService.cargarClienteCompleto(id);
+        if (cc == null) {
+            System.out.println("No encontrado.");
+            return;
+        }
+        Cliente c = cc.getCliente();
+        System.out.println(c);
+        System.out.println("  Detalle: " + (c.getDetalle() == null ? "(sin detalle)" : c.getDetalle()));
+        System.out.println("  Pedidos: " + c.getPedidos().size());
+        for (Pedido p : c.getPedidos()) {
+            System.out.println("    " + p);
+            p.getLineas().forEach(l -> System.out.println("      " + l));
+        }
+        System.out.println("  Envíos: " + cc.getEnvios().size());
+        cc.getEnvios().forEach(e -> System.out.println("    " + e));
     }
 
     // =========================================================
@@ -223,7 +308,7 @@ public class DemoRelaciones {
     // =========================================================
 
     private static void listarProductos() throws SQLException {
-        List<Producto> list = productoDAO.findAll();
+        List<Producto> list = productos.findAll();
         System.out.println("PRODUCTOS: " + list.size());
         list.forEach(System.out::println);
     }
@@ -236,15 +321,17 @@ public class DemoRelaciones {
         System.out.print("precio: ");
         double precio = Double.parseDouble(sc.nextLine().trim());
 
-        productoDAO.insert(new Producto(id, nombre, precio));
+        Producto p = new Producto(id, nombre, precio);
+        productos.escribir(p, () -> productoDAO.insert(p));
         System.out.println("Producto insertado.");
     }
 
     private static void buscarProductoPorId(Scanner sc) throws SQLException {
         System.out.print("id: ");
         int id = Integer.parseInt(sc.nextLine().trim());
-        Producto p = productoDAO.findById(id);
+        Producto p = productos.findById(id);
         System.out.println(p == null ? "No encontrado." : p);
+        System.out.println("  caché: " + productos.getCache().stats());
     }
 
     // =========================================================
@@ -252,16 +339,15 @@ public class DemoRelaciones {
     // =========================================================
 
     private static void listarPedidos() throws SQLException {
-        List<Pedido> list = pedidoDAO.findAll();
+        // Pedidos y líneas en dos consultas (no una por pedido)
+        List<Pedido> list = pedidoDAO.findAllWithLineas();
         System.out.println("PEDIDOS: " + list.size());
 
-        // Mostrar cada pedido y a continuación sus líneas (si tienes findByPedidoId)
+        // Mostrar cada pedido y a continuación sus líneas
         for (Pedido p : list) {
             System.out.println(p);
 
-            // Si tu DetallePedidoDAO tiene método findByPedidoId:
-            List<DetallePedido> lineas = detallePedidoDAO.findByPedidoId(p.getId());
-            for (DetallePedido dp : lineas) {
+            for (DetallePedido dp : p.getLineas()) {
                 System.out.println("   -> " + dp);
             }
         }
@@ -301,9 +387,13 @@ public class DemoRelaciones {
     // =========================================================
 
     private static void listarDetallesPedido() throws SQLException {
-        List<DetallePedido> list = detallePedidoDAO.findAll();
-        System.out.println("DETALLES_PEDIDO: " + list.size());
-        list.forEach(System.out::println);
+        // Es la tabla más grande: se recorre con cursor en vez de cargarla entera
+        long[] n = {0};
+        detallePedidoDAO.stream(dp -> {
+            System.out.println(dp);
+            n[0]++;
+        });
+        System.out.println("DETALLES_PEDIDO: " + n[0]);
     }
 
     private static void insertarDetallePedido(Scanner sc) throws SQLException {
@@ -324,7 +414,7 @@ public class DemoRelaciones {
     // =========================================================
 
     private static void listarComerciales() throws SQLException {
-        List<Comercial> list = comercialDAO.findAll();
+        List<Comercial> list = comerciales.findAll();
         System.out.println("COMERCIAL: " + list.size());
         list.forEach(System.out::println);
     }
@@ -337,14 +427,16 @@ public class DemoRelaciones {
         System.out.print("Zona de ventas: ");
         String zonaventa = sc.nextLine().trim();
 
-        comercialDAO.insert(new Comercial(id, nombre, zonaventa));
+        Comercial co = new Comercial(id, nombre, zonaventa);
+        comerciales.escribir(co, () -> comercialDAO.insert(co));
         System.out.println("Comercial insertado.");
     }
     private static void buscarComercialPorId(Scanner sc) throws SQLException {
         System.out.print("id: ");
         int id = Integer.parseInt(sc.nextLine().trim());
-        Comercial co = comercialDAO.findById(id);
+        Comercial co = comerciales.findById(id);
         System.out.println(co == null ? "No encontrado." : co);
+        System.out.println("  caché: " + comerciales.getCache().stats());
     }
 
     // =========================================================
@@ -352,7 +444,7 @@ public class DemoRelaciones {
     // =========================================================
 
     private static void listarRepartidor() throws SQLException {
-        List<Repartidor> list = repartidorDAO.findAll();
+        List<Repartidor> list = repartidores.findAll();
         System.out.println("REPARTIDOR: " + list.size());
         list.forEach(System.out::println);
     }
@@ -365,14 +457,16 @@ public class DemoRelaciones {
         System.out.print("vehiculo: ");
         String vehiculo= sc.nextLine().trim();
 
-        repartidorDAO.insert(new Repartidor(id, nombre, vehiculo));
+        Repartidor r = new Repartidor(id, nombre, vehiculo);
+        repartidores.escribir(r, () -> repartidorDAO.insert(r));
         System.out.println("Repartidor insertado.");
     }
     private static void buscarRepartidorPorId(Scanner sc) throws SQLException {
         System.out.print("id: ");
         int id = Integer.parseInt(sc.nextLine().trim());
-        Repartidor r = repartidorDAO.findById(id);
+        Repartidor r = repartidores.findById(id);
         System.out.println(r == null ? "No encontrado." : r);
+        System.out.println("  caché: " + repartidores.getCache().stats());
     }
 
     // =========================================================
@@ -380,18 +474,27 @@ public class DemoRelaciones {
     // =========================================================
 
     private static void listarEnvios() throws SQLException {
-        List<Envio> list = envioDAO.findAll();
-        System.out.println("ENVÍOS REGISTRADOS: " + list.size());
-        if (list.isEmpty()) {
-            System.out.println("No hay envíos que mostrar.");
-        } else {
-            list.forEach(e -> {
+        // Por páginas, cada una en una sola consulta con las líneas de sus pedidos
+        int total = 0;
+        int ultimoId = Integer.MIN_VALUE;   // antes de cualquier id, también de 0 o negativos
+        List<Envio> pagina;
+        while (!(pagina = envioDAO.findPageWithLineas(ultimoId, PAGINA_ENVIOS)).isEmpty()) {
+            pagina.forEach(e -> {
                 System.out.println("---------------------------------------------");
                 System.out.println("ENVÍO ID: " + e.getId());
-                System.out.println("  Pedido: " + e.getPedido().getId() + " (Cliente: " + e.getPedido().getClienteId() + ")");
+                System.out.println("  Pedido: " + e.getPedido().getId() + " (Cliente: " + e.getPedido().getClienteId() + ")"
+                        + " del " + e.getPedido().getFecha() + ", total " + "%.2f".formatted(e.getPedido().getTotal()));
                 System.out.println("  Vendido por: " + e.getComercial().getNombre());
                 System.out.println("  Repartido por: " + e.getRepartidor().getNombre() + " [" + e.getRepartidor().getVehiculo() + "]");
             });
+            total += pagina.size();
+            ultimoId = pagina.get(pagina.size() - 1).getId();
+        }
+
+        if (total == 0) {
+            System.out.println("No hay envíos que mostrar.");
+        } else {
+            System.out.println("ENVÍOS REGISTRADOS: " + total);
         }
     }
 
@@ -399,7 +502,7 @@ public class DemoRelaciones {
         System.out.print("Introduce ID del envío: ");
         int id = Integer.parseInt(sc.nextLine().trim());
 
-        Envio e = envioDAO.findById(id);
+        Envio e = envioDAO.findByIdWithLineas(id);
 
         if (e != null) {
             System.out.println("Información detallada del envío:");
@@ -415,27 +518,65 @@ public class DemoRelaciones {
 
     /**
      * Exporta una "foto" de la BD a JSON.
-     * Lee todas las tablas y las serializa.
+     * Lee todas las tablas con cursor y las va escribiendo en el fichero
+     * (no carga el AppData entero en memoria).
      */
     private static void exportarJson() throws SQLException, IOException {
-        AppData data = new AppData();
+        Map<SnapshotTable, Long> filas = new StreamingExporter().exportar(JSON_FILE);
+        filas.forEach((t, n) -> System.out.println("  " + t.table() + ": " + n));
 
-        data.setClientes(clienteDAO.findAll());
-        data.setDetallesCliente(detalleClienteDAO.findAll());
-        data.setProductos(productoDAO.findAll());
-        data.setPedidos(pedidoDAO.findAll());
-        data.setDetallesPedido(detallePedidoDAO.findAll());
-        data.setComerciales(comercialDAO.findAll());
-        data.setRepartidores(repartidorDAO.findAll());
-        data.setEnvio(envioDAO.findAll());
+        System.out.println("Exportado JSON en: " + JSON_FILE.getAbsolutePath());
+    }
 
-        JsonIO.write(JSON_FILE, data);
+    /**
+     * Exporta cada tabla en su propio hilo y fichero, todas desde el mismo
+     * snapshot de la BD (pg_export_snapshot).
+     */
+    private static void exportarJsonParalelo() throws SQLException, IOException {
+        long t0 = System.currentTimeMillis();
+        new ParallelExporter().exportar(EXPORT_DIR).values().forEach(System.out::println);
 
-        System.out.println("Exportado JSON en: " + JSON_FILE.getAbsolutePath());
+        System.out.println("Exportado en " + (System.currentTimeMillis() - t0) + " ms a: "
+                + EXPORT_DIR.getAbsolutePath());
     }
 
     /**
-     * Importa JSON a la BD haciendo INSERT en orden correcto por FKs:
+     * Copia incremental: la primera vez exporta todo (base), las siguientes
+     * solo lo insertado, modificado o borrado desde la última copia (delta).
+     */
+    private static void backupIncremental() throws SQLException, IOException {
+        IncrementalBackup.Entrada e = new IncrementalBackup(BACKUP_DIR).exportar();
+        System.out.println("Copia " + e.getTipo() + ": " + e.getFichero() + " " + e.getFilas());
+    }
+
+    private static void restaurarBackup() throws SQLException, IOException {
+        List<IncrementalBackup.Entrada> aplicadas = new IncrementalBackup(BACKUP_DIR).restaurar();
+        aplicadas.forEach(System.out::println);
+        invalidarCaches();
+        System.out.println("Restauración finalizada (" + aplicadas.size() + " ficheros).");
+    }
+
+    /**
+     * Lee las ocho tablas a la vez (misma foto de la BD) en un AppData
+     * y muestra lo que ha tardado cada una.
+     */
+    private static void cargarEnMemoria() throws SQLException {
+        SnapshotLoader.Snapshot s = new SnapshotLoader().cargar();
+        s.tablas().values().forEach(System.out::println);
+        System.out.println("Cargado en " + s.millis() + " ms (la suma por tablas sería "
+                + s.tablas().values().stream().mapToLong(SnapshotLoader.TableLoad::millis).sum() + " ms).");
+    }
+
+    // Migración idempotente: se puede lanzar todas las veces que haga falta
+    private static void crearIndicesBusqueda() throws SQLException, IOException {
+        int n = SqlScripts.ejecutar(SqlScripts.BUSQUEDA_TRIGRAM);
+        System.out.println("Índices de búsqueda creados/comprobados (" + n + " sentencias).");
+        n = SqlScripts.ejecutar(SqlScripts.INDICES_CLAVES_AJENAS);
+        System.out.println("Índices de claves ajenas creados/comprobados (" + n + " sentencias).");
+    }
+
+    /**
+     * Importa JSON a la BD en orden correcto por FKs:
      *  1) cliente
      *  2) detalle_cliente
      *  3) producto
@@ -445,11 +586,14 @@ public class DemoRelaciones {
      *  7) repartidor
      *  8) envío
      *
+     * Usa CopyImporter: cada tabla entra con un COPY FROM STDIN y todo va
+     * en una sola transacción (si falla una fila, no se importa nada).
+     *
      * IMPORTANTE:
-     * - No borra lo existente (si ya hay IDs repetidos, fallará por PK).
-     * - En clase podéis añadir luego una opción "vaciar tablas" o "upsert".
+     * - En modo INSERT no borra lo existente (si ya hay IDs repetidos, fallará por PK).
+     * - En modo UPSERT los IDs repetidos se actualizan (staging + merge).
      */
-    private static void importarJson() throws IOException, SQLException {
+    private static void importarJson(CopyImporter.Mode modo) throws IOException, SQLException {
         if (!JSON_FILE.exists()) {
             System.out.println("No existe el JSON: " + JSON_FILE.getAbsolutePath());
             return;
@@ -457,48 +601,53 @@ public class DemoRelaciones {
 
         AppData data = JsonIO.read(JSON_FILE, AppData.class);
 
-        // 1) Clientes
-        for (Cliente c : data.getClientes()) {
-            // Comprueba  si existe para evitar error, pero lo dejamos simple:
-            // si existe, fallará por PK/unique -> perfecto para explicar integridad.
-            clienteDAO.insert(c);
-        }
+        List<CopyImporter.TableStats> stats = new CopyImporter().importar(data, modo);
+        stats.forEach(System.out::println);
+        invalidarCaches();
 
-        // 2) Detalles cliente (requieren cliente previo)
-        for (DetalleCliente d : data.getDetallesCliente()) {
-            detalleClienteDAO.insert(d);
-        }
-
-        // 3) Productos
-        for (Producto p : data.getProductos()) {
-            productoDAO.insert(p);
-        }
+        System.out.println("Importación finalizada.");
+    }
 
-        // 4) Pedidos (requieren cliente previo)
-        for (Pedido pe : data.getPedidos()) {
-            pedidoDAO.insert(pe);
+    /**
+     * Importa JSON leyéndolo en streaming: bloques con commit propio.
+     * Si se corta a mitad, volver a lanzarlo continúa desde el último bloque confirmado.
+     * En modo UPSERT cada bloque es un INSERT ... ON CONFLICT DO UPDATE: los ids repetidos se actualizan.
+     */
+    private static void importarJsonPorBloques(CopyImporter.Mode modo) throws IOException, SQLException {
+        if (!JSON_FILE.exists()) {
+            System.out.println("No existe el JSON: " + JSON_FILE.getAbsolutePath());
+            return;
         }
 
-        // 5) Detalles pedido (requieren pedido y producto previos)
-        for (DetallePedido dp : data.getDetallesPedido()) {
-            detallePedidoDAO.insert(dp);
+        StreamingImporter importer = new StreamingImporter(modo);
+        if (modo == CopyImporter.Mode.UPSERT) {
+            importer.olvidar(JSON_FILE);   // se vuelve a aplicar aunque ya se hubiera importado
         }
+        Map<SnapshotTable, Long> filas = importer.importar(JSON_FILE);
+        filas.forEach((t, n) -> System.out.println("  " + t.table() + ": " + n));
+        invalidarCaches();
 
-        // 6) Comercial (requieren pedido )
-        for (Comercial co : data.getComerciales()) {
-            comercialDAO.insert(co);
-        }
+        System.out.println("Importación finalizada.");
+    }
 
-        // 7) Detalles repartidor (requieren comercial y cliente)
-        for (Repartidor r : data.getRepartidores()) {
-            repartidorDAO.insert(r);
-        }
+    private static void instalarAvisosCambios() throws SQLException, IOException {
+        int n = InvalidationBus.instalarTriggers();
+        System.out.println("Triggers de avisos creados/actualizados (" + n + " sentencias).");
+    }
 
-        // 8) Detalles Envío (requieren pedido, comercial y cliente )
-        for (Envio en : data.getEnvios()) {
-            envioDAO.insert(en);
-        }
+    // Lo que cambien otros procesos en estas tablas se saca de las cachés
+    // (solo llegan avisos si los triggers de la opción 31 están instalados)
+    private static void escucharCambios() {
+        InvalidationBus bus = InvalidationBus.get();
+        bus.suscribir("producto", productos::invalidar, productos::invalidarTodo);
+        bus.suscribir("comercial", comerciales::invalidar, comerciales::invalidarTodo);
+        bus.suscribir("repartidor", repartidores::invalidar, repartidores::invalidarTodo);
+    }
 
-        System.out.println("Importación finalizada.");
+    // Las importaciones escriben sin pasar por los DAO: lo cacheado puede estar viejo
+    private static void invalidarCaches() {
+        productos.invalidarTodo();
+        comerciales.invalidarTodo();
+        repartidores.invalidarTodo();
     }
-}
\ No newline at end of file
+}
@@ -5,15 +5,23 @@ import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 public class LampreasVioletaApp extends Application {
+
+    private ClientesView vistaClientes;
+
     @Override
     public void start(Stage stage) {
-        ClientesView vistaClientes = new ClientesView();
+        vistaClientes = new ClientesView();
         Scene scene = new Scene(vistaClientes.getRoot(), 900, 600);
         stage.setTitle("Gestión de Clientes - Lampreas Violeta");
         stage.setScene(scene);
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        if (vistaClientes != null) vistaClientes.cerrar();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
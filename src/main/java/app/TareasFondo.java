@@ -0,0 +1,84 @@
+package app;
+
+import db.Db;
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.BooleanBinding;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.concurrent.Task;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Ejecuta en segundo plano el trabajo de las vistas (consultas JDBC) para no
+ * bloquear el hilo de JavaFX.
+ *
+ * Cada trabajo va dentro de un javafx.concurrent.Task: el Callable corre en un
+ * hilo del pool y los callbacks alTerminar / alFallar se ejecutan ya en el hilo
+ * de JavaFX (Task los publica con Platform.runLater), así que pueden tocar la UI.
+ *
+ * ocupadoProperty() es true mientras haya alguna tarea en marcha, para enlazarla
+ * con un ProgressIndicator. Hay que llamar a ejecutar() desde el hilo de JavaFX.
+ */
+public class TareasFondo {
+
+    private final ExecutorService executor;
+    private final IntegerProperty enCurso = new SimpleIntegerProperty(0);
+    private final BooleanBinding ocupado = Bindings.greaterThan(enCurso, 0);
+
+    public TareasFondo() {
+        // No más hilos que conexiones: el resto esperaría en el pool igualmente
+        this(Math.min(4, Db.getPool().getMaxSize()));
+    }
+
+    public TareasFondo(int hilos) {
+        AtomicInteger n = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(hilos, r -> {
+            Thread t = new Thread(r, "ui-tarea-" + n.incrementAndGet());
+            t.setDaemon(true);   // que no impidan cerrar la aplicación
+            return t;
+        });
+    }
+
+    /**
+     * Lanza 'trabajo' en segundo plano. Devuelve el Task para poder cancelarlo:
+     * una tarea cancelada no llama ni a alTerminar ni a alFallar, así que su
+     * resultado (si la consulta ya estaba en la BD) se descarta.
+     */
+    public <T> Task<T> ejecutar(Callable<T> trabajo,
+                                Consumer<? super T> alTerminar,
+                                Consumer<? super Throwable> alFallar) {
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return trabajo.call();
+            }
+        };
+        task.setOnSucceeded(e -> alTerminar.accept(task.getValue()));
+        task.setOnFailed(e -> alFallar.accept(task.getException()));
+
+        // Los cambios de estado llegan en el hilo de JavaFX, igual que este incremento
+        enCurso.set(enCurso.get() + 1);
+        task.stateProperty().addListener((obs, antes, ahora) -> {
+            switch (ahora) {
+                case SUCCEEDED, FAILED, CANCELLED -> enCurso.set(enCurso.get() - 1);
+                default -> { }
+            }
+        });
+
+        executor.execute(task);
+        return task;
+    }
+
+    public BooleanBinding ocupadoProperty() {
+        return ocupado;
+    }
+
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,149 @@
+package dao;
+
+import db.Db;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Versión asíncrona de cualquier llamada a un DAO: devuelve un CompletableFuture
+ * en vez de bloquear, para lanzar a la vez consultas que no dependen entre sí
+ * y esperar solo a la más lenta:
+ *
+ *   CompletableFuture<Cliente> c = AsyncDAO.supply(() -> clienteDAO.findById(id));
+ *   CompletableFuture<DetalleCliente> d = AsyncDAO.supply(() -> detalleDAO.findById(id));
+ *   ... c.thenCombine(d, ...) o AsyncDAO.join(c), AsyncDAO.join(d)
+ *
+ * Hilos: si la JVM tiene hilos virtuales (Java 21+) se usa uno por consulta;
+ * si no (el proyecto compila para Java 17), un pool fijo de hilos daemon.
+ * En los dos casos un semáforo deja como mucho tantas consultas a la vez como
+ * conexiones tiene el pool (Db.getPool().getMaxSize()): el resto esperarían
+ * igualmente una conexión, y así no se quedan ocupando el pool con timeouts.
+ *
+ * Si la consulta lanza SQLException, el future acaba con una CompletionException
+ * cuya causa es esa SQLException; join() la desenvuelve.
+ *
+ * No esperar a un future de AsyncDAO DENTRO de otra consulta de AsyncDAO: con
+ * todos los permisos ocupados por consultas que esperan, nadie avanzaría.
+ * Para encadenar, usar thenCompose / thenCombine.
+ */
+public final class AsyncDAO {
+
+    @FunctionalInterface
+    public interface Consulta<T> {
+        T ejecutar() throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface Accion {
+        void ejecutar() throws SQLException;
+    }
+
+    private static final int MAX_CONCURRENTES = Math.max(1, Db.getPool().getMaxSize());
+    private static final Semaphore PERMISOS = new Semaphore(MAX_CONCURRENTES, true);
+
+    private static final ExecutorService EXECUTOR;
+    private static final boolean HILOS_VIRTUALES;
+
+    static {
+        ExecutorService virtual = executorVirtual();
+        HILOS_VIRTUALES = virtual != null;
+        EXECUTOR = virtual != null ? virtual : executorFijo(MAX_CONCURRENTES);
+    }
+
+    private AsyncDAO() { }
+
+    /** Ejecuta la consulta en segundo plano. */
+    public static <T> CompletableFuture<T> supply(Consulta<T> consulta) {
+        return CompletableFuture.supplyAsync(() -> {
+            adquirir();
+            try {
+                return consulta.ejecutar();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } finally {
+                PERMISOS.release();
+            }
+        }, EXECUTOR);
+    }
+
+    /** Igual que supply, para escrituras sin resultado. */
+    public static CompletableFuture<Void> run(Accion accion) {
+        return supply(() -> {
+            accion.ejecutar();
+            return null;
+        });
+    }
+
+    /**
+     * Espera el resultado. Relanza la SQLException de la consulta tal cual
+     * (o las RuntimeException / Error, también sin envolver).
+     */
+    public static <T> T join(CompletableFuture<T> futuro) throws SQLException {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Espera interrumpida", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof SQLException ex) throw ex;
+            if (causa instanceof RuntimeException ex) throw ex;
+            if (causa instanceof Error ex) throw ex;
+            throw new SQLException("Fallo en una consulta asíncrona", causa);
+        }
+    }
+
+    public static boolean usaHilosVirtuales() {
+        return HILOS_VIRTUALES;
+    }
+
+    /** Consultas ejecutándose ahora mismo (las que tienen permiso). */
+    public static int getEnCurso() {
+        return MAX_CONCURRENTES - PERMISOS.availablePermits();
+    }
+
+    public static int getMaxConcurrentes() {
+        return MAX_CONCURRENTES;
+    }
+
+    // =========================================================
+    // HILOS
+    // =========================================================
+
+    private static void adquirir() {
+        try {
+            PERMISOS.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(new SQLException("Consulta interrumpida antes de empezar", e));
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() solo existe desde Java 21:
+    // se busca por reflexión para que el código siga compilando con Java 17
+    private static ExecutorService executorVirtual() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService executorFijo(int hilos) {
+        AtomicInteger n = new AtomicInteger();
+        return Executors.newFixedThreadPool(hilos, r -> {
+            Thread t = new Thread(r, "dao-async-" + n.incrementAndGet());
+            t.setDaemon(true);   // que no impidan terminar la aplicación
+            return t;
+        });
+    }
+}
@@ -0,0 +1,113 @@
+package dao;
+
+import db.Db;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Lógica común de los insertAll() de los DAO (TablaDAO).
+ *
+ * Envía las filas con addBatch()/executeBatch() en lotes de batchSize.
+ * Con reWriteBatchedInserts=true (ver Db) el driver convierte cada lote en
+ * un INSERT ... VALUES (...), (...), ... de varias filas: un round trip por lote.
+ */
+final class BatchInsert {
+
+    static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /** Pasa los campos de una fila a los ? del INSERT. */
+    @FunctionalInterface
+    interface Binder<T> {
+        void bind(PreparedStatement ps, T row) throws SQLException;
+    }
+
+    private BatchInsert() { }
+
+    /**
+     * Inserta todas las filas en UNA transacción propia.
+     * Si falla alguna, rollback de todo y el resultado indica qué fila fue.
+     */
+    static <T> BatchResult run(String sql, Collection<T> rows, int batchSize,
+                               Binder<T> binder) throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
+
+            try {
+                BatchResult r = run(sql, rows, batchSize, binder, con);
+                if (r.isSuccess()) {
+                    con.commit();
+                    return r;
+                }
+                con.rollback();
+                return r.rolledBack();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Versión transaccional: usa la conexión del servicio y no hace commit ni rollback.
+     * Si el resultado no es isSuccess(), la transacción de PostgreSQL queda abortada
+     * y el llamador debe hacer rollback.
+     */
+    static <T> BatchResult run(String sql, Collection<T> rows, int batchSize,
+                               Binder<T> binder, Connection con) throws SQLException {
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize debe ser >= 1");
+
+        BatchResult.Outcome[] out = new BatchResult.Outcome[rows.size()];
+        Arrays.fill(out, BatchResult.Outcome.NOT_EXECUTED);
+        if (rows.isEmpty()) return new BatchResult(out, null);
+
+        int i = 0;          // filas añadidas
+        int inicioLote = 0; // primera fila del lote pendiente
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (T row : rows) {
+                binder.bind(ps, row);
+                ps.addBatch();
+                i++;
+
+                if (i - inicioLote == batchSize) {
+                    ps.executeBatch();
+                    Arrays.fill(out, inicioLote, i, BatchResult.Outcome.INSERTED);
+                    inicioLote = i;
+                }
+            }
+            if (i > inicioLote) {
+                ps.executeBatch();
+                Arrays.fill(out, inicioLote, i, BatchResult.Outcome.INSERTED);
+            }
+            return new BatchResult(out, null);
+
+        } catch (BatchUpdateException e) {
+            marcarFallo(out, inicioLote, i, e.getUpdateCounts());
+            return new BatchResult(out, e);
+        }
+    }
+
+    // Dentro del lote que falló, el driver dice fila a fila qué pasó
+    private static void marcarFallo(BatchResult.Outcome[] out, int desde, int hasta, int[] counts) {
+        boolean algunaMarcada = false;
+        for (int k = desde; k < hasta; k++) {
+            int idx = k - desde;
+            if (counts != null && idx < counts.length && counts[idx] == Statement.EXECUTE_FAILED) {
+                out[k] = BatchResult.Outcome.FAILED;
+                algunaMarcada = true;
+            } else {
+                out[k] = BatchResult.Outcome.ROLLED_BACK;
+            }
+        }
+        // Si el driver no concreta la fila, todo el lote cuenta como fallido
+        if (!algunaMarcada) Arrays.fill(out, desde, hasta, BatchResult.Outcome.FAILED);
+    }
+}
@@ -0,0 +1,73 @@
+package dao;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Resultado de un insertAll(): qué pasó con cada fila, en el mismo orden
+ * en que venían en la colección.
+ */
+public final class BatchResult {
+
+    public enum Outcome {
+        INSERTED,       // la fila quedó insertada
+        FAILED,         // el driver marcó esta fila como la que falló
+        ROLLED_BACK,    // se ejecutó, pero la transacción se deshizo por otra fila
+        NOT_EXECUTED    // no llegó a enviarse porque el lote se cortó antes
+    }
+
+    private final Outcome[] outcomes;
+    private final SQLException error;
+
+    BatchResult(Outcome[] outcomes, SQLException error) {
+        this.outcomes = outcomes;
+        this.error = error;
+    }
+
+    public int size() { return outcomes.length; }
+
+    public Outcome get(int index) { return outcomes[index]; }
+
+    public List<Outcome> getOutcomes() { return List.of(outcomes); }
+
+    /** true si todas las filas se insertaron. */
+    public boolean isSuccess() { return error == null; }
+
+    /** Error que cortó el lote, o null si todo fue bien. */
+    public SQLException getError() { return error; }
+
+    public int getInsertedCount() { return count(Outcome.INSERTED); }
+
+    /** Posiciones (0..n-1) de las filas que provocaron el fallo. */
+    public List<Integer> getFailedRows() {
+        List<Integer> out = new ArrayList<>();
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == Outcome.FAILED) out.add(i);
+        }
+        return out;
+    }
+
+    // Tras un rollback, lo que estaba insertado ya no lo está
+    BatchResult rolledBack() {
+        Outcome[] copia = Arrays.copyOf(outcomes, outcomes.length);
+        for (int i = 0; i < copia.length; i++) {
+            if (copia[i] == Outcome.INSERTED) copia[i] = Outcome.ROLLED_BACK;
+        }
+        return new BatchResult(copia, error);
+    }
+
+    private int count(Outcome o) {
+        int n = 0;
+        for (Outcome x : outcomes) if (x == o) n++;
+        return n;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{filas=%d, insertadas=%d, fallidas=%d, error=%s}"
+                .formatted(size(), getInsertedCount(), count(Outcome.FAILED),
+                        error == null ? "-" : error.getMessage());
+    }
+}
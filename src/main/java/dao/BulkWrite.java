@@ -0,0 +1,181 @@
+package dao;
+
+import db.Db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Lógica común de los upsertAll() / updateAll() / deleteAllByIds() de los DAO.
+ *
+ * En vez de una sentencia por fila, cada columna viaja como UN array y el SQL
+ * los vuelve a convertir en filas con unnest():
+ *
+ *   INSERT INTO t (id, a) SELECT * FROM unnest(?::integer[], ?::text[]) ON CONFLICT (id) DO UPDATE ...
+ *   UPDATE t SET a = v.a FROM unnest(?::integer[], ?::text[]) AS v(id, a) WHERE t.id = v.id
+ *   DELETE FROM t WHERE id = ANY(?)
+ *
+ * Una sola sentencia y un solo viaje a la BD sea cual sea el número de filas,
+ * y atómica por sí misma: o se aplican todas o ninguna.
+ *
+ * Cada DAO solo declara sus columnas (Tabla); el SQL de arriba se genera a
+ * partir de ellas y los métodos que lo usan están en TablaDAO.
+ *
+ * ON CONFLICT DO UPDATE falla si la misma clave sale dos veces en la sentencia
+ * ("cannot affect row a second time"), así que antes se quitan las filas con
+ * clave repetida: gana la última, como si se hubieran aplicado en orden.
+ */
+final class BulkWrite {
+
+    /** Una columna: nombre, tipo del array en PostgreSQL y cómo sacar su valor de la fila. */
+    record Columna<T>(String nombre, String tipo, Function<? super T, ?> valor) { }
+
+    private BulkWrite() { }
+
+    static <T> Columna<T> col(String nombre, String tipo, Function<? super T, ?> valor) {
+        return new Columna<>(nombre, tipo, valor);
+    }
+
+    /**
+     * Las columnas de una tabla en el orden de su INSERT (el de bindInsert), con
+     * las 'nClave' primeras formando la clave primaria. Genera el SQL de upsert,
+     * upsertAll, updateAll, deleteAll y, si la clave es una sola columna,
+     * deleteAllByIds (TablaConIdDAO).
+     */
+    static final class Tabla<T> {
+
+        private final String nombre;
+        private final List<Columna<T>> columnas;
+        private final List<Columna<T>> columnasClave;
+        private final Function<? super T, ?> clave;
+
+        private final String upsertSql;
+        private final String upsertAllSql;
+        private final String updateAllSql;
+        private final String deleteAllSql;
+        private final String deleteByIdsSql;   // null si la clave es compuesta
+
+        Tabla(String nombre, int nClave, List<Columna<T>> columnas) {
+            if (nClave < 1 || nClave >= columnas.size()) {
+                throw new IllegalArgumentException(nombre + ": hace falta al menos una columna de clave y una que no lo sea");
+            }
+            this.nombre = nombre;
+            this.columnas = List.copyOf(columnas);
+            this.columnasClave = this.columnas.subList(0, nClave);
+            List<Columna<T>> resto = this.columnas.subList(nClave, columnas.size());
+
+            if (nClave == 1) {
+                this.clave = columnasClave.get(0).valor();
+            } else {
+                this.clave = row -> columnasClave.stream().map(c -> c.valor().apply(row)).toList();
+            }
+
+            String todas = nombres(this.columnas, "%s", ", ");
+            String claves = nombres(columnasClave, "%s", ", ");
+            String excluded = nombres(resto, "%s = EXCLUDED.%1$s", ", ");
+
+            upsertSql = "INSERT INTO %s (%s) VALUES (%s) ON CONFLICT (%s) DO UPDATE SET %s"
+                    .formatted(nombre, todas, nombres(this.columnas, "?", ", "), claves, excluded);
+            upsertAllSql = "INSERT INTO %s (%s) SELECT * FROM %s ON CONFLICT (%s) DO UPDATE SET %s"
+                    .formatted(nombre, todas, unnest(this.columnas), claves, excluded);
+            updateAllSql = "UPDATE %s t SET %s FROM %s AS v(%s) WHERE %s"
+                    .formatted(nombre, nombres(resto, "%s = v.%1$s", ", "), unnest(this.columnas), todas,
+                            nombres(columnasClave, "t.%s = v.%1$s", " AND "));
+            deleteAllSql = "DELETE FROM %s t USING %s AS v(%s) WHERE %s"
+                    .formatted(nombre, unnest(columnasClave), claves,
+                            nombres(columnasClave, "t.%s = v.%1$s", " AND "));
+            deleteByIdsSql = nClave == 1
+                    ? "DELETE FROM %s WHERE %s = ANY(?)".formatted(nombre, claves)
+                    : null;
+        }
+
+        // Cada columna con el formato (su nombre es %s / %1$s), unidas con 'sep'
+        private static String nombres(List<? extends Columna<?>> cols, String formato, String sep) {
+            return cols.stream().map(c -> formato.formatted(c.nombre())).collect(Collectors.joining(sep));
+        }
+
+        private static String unnest(List<? extends Columna<?>> cols) {
+            return cols.stream().map(c -> "?::" + c.tipo() + "[]").collect(Collectors.joining(", ", "unnest(", ")"));
+        }
+
+        String nombre() { return nombre; }
+
+        List<Columna<T>> columnas() { return columnas; }
+
+        List<Columna<T>> columnasClave() { return columnasClave; }
+
+        /** Clave de una fila (el id, o la lista de valores si es compuesta) para quitar repetidas. */
+        Function<? super T, ?> clave() { return clave; }
+
+        String upsertSql() { return upsertSql; }
+
+        String upsertAllSql() { return upsertAllSql; }
+
+        String updateAllSql() { return updateAllSql; }
+
+        String deleteAllSql() { return deleteAllSql; }
+
+        String deleteByIdsSql() { return deleteByIdsSql; }
+    }
+
+    /** Ejecuta la sentencia con una conexión propia (en autocommit). Devuelve las filas afectadas. */
+    static <T> int run(String sql, Collection<T> rows, Function<? super T, ?> clave,
+                       List<Columna<T>> columnas) throws SQLException {
+        if (rows.isEmpty()) return 0;
+        try (Connection con = Db.getConnection()) {
+            return run(sql, rows, clave, columnas, con);
+        }
+    }
+
+    /** Versión transaccional: usa la conexión del servicio y no hace commit ni rollback. */
+    static <T> int run(String sql, Collection<T> rows, Function<? super T, ?> clave,
+                       List<Columna<T>> columnas, Connection con) throws SQLException {
+        Collection<T> unicas = sinRepetidas(rows, clave);
+        if (unicas.isEmpty()) return 0;
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            int i = 1;
+            for (Columna<T> c : columnas) {
+                Object[] valores = new Object[unicas.size()];
+                int k = 0;
+                for (T row : unicas) {
+                    valores[k++] = c.valor().apply(row);
+                }
+                ps.setArray(i++, con.createArrayOf(c.tipo(), valores));
+            }
+            return ps.executeUpdate();
+        }
+    }
+
+    /** DELETE ... WHERE id = ANY(?) con una conexión propia. */
+    static int deleteByIds(String sql, Collection<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) return 0;
+        try (Connection con = Db.getConnection()) {
+            return deleteByIds(sql, ids, con);
+        }
+    }
+
+    static int deleteByIds(String sql, Collection<Integer> ids, Connection con) throws SQLException {
+        if (ids.isEmpty()) return 0;
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setArray(1, con.createArrayOf("integer", ids.toArray()));
+            return ps.executeUpdate();
+        }
+    }
+
+    // Una fila por clave; si se repite, se queda la última (en la posición de la primera)
+    static <T> Collection<T> sinRepetidas(Collection<T> rows, Function<? super T, ?> clave) {
+        Map<Object, T> porClave = new LinkedHashMap<>();
+        for (T row : rows) {
+            porClave.put(clave.apply(row), row);
+        }
+        return porClave.values();
+    }
+}
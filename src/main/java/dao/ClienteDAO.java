@@ -15,10 +15,11 @@ import java.sql.SQLException;
 // Imports necesarios para el uso del API JDBC de Java.
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 // Usamos listas dinámicas para devolver varios clientes cuando hacemos un SELECT *.
 
-public class ClienteDAO {
+public class ClienteDAO extends TablaConIdDAO<Cliente> {
     // Clase DAO que contiene la lógica de acceso a datos para la entidad Cliente.
     // Todo lo relacionado con INSERT, SELECT, UPDATE y DELETE de clientes se pone aquí.
 
@@ -31,24 +32,48 @@ public class ClienteDAO {
     // Consulta SQL para insertar un cliente.
     // Usamos ? para parámetros → evita SQL injection y mejora rendimiento con sentencias preparadas.
 
+    // Columnas en el orden del INSERT (la primera es la clave). De aquí sale el SQL del
+    // upsert y de las escrituras en bloque de TablaDAO (ver BulkWrite.Tabla)
+    private static final BulkWrite.Tabla<Cliente> TABLA = new BulkWrite.Tabla<>("cliente", 1, List.of(
+            BulkWrite.col("id", "integer", Cliente::getId),
+            BulkWrite.col("nombre", "text", Cliente::getNombre),
+            BulkWrite.col("email", "text", Cliente::getEmail)));
+
     private static final String SELECT_BY_ID_SQL =
             "SELECT id, nombre, email FROM cliente WHERE id = ?";
     // Consulta SQL para buscar un cliente por su ID.
 
+    private static final String SELECT_BY_IDS_SQL =
+            "SELECT id, nombre, email FROM cliente WHERE id = ANY(?) ORDER BY id";
+    // Varios clientes de una vez (array de ids).
+
     private static final String SELECT_ALL_SQL =
             "SELECT id, nombre, email FROM cliente ORDER BY id";
     // Consulta SQL para obtener todos los clientes ordenados por id.
 
+    // Filas cambiadas desde una copia anterior (exportación incremental, ver RegistroCambios)
+    private static final String SELECT_CAMBIADAS_SQL =
+            "SELECT id, nombre, email FROM cliente WHERE id IN (" + RegistroCambios.clavesCambiadas("cliente", 1) + ") ORDER BY id";
+
+    // Paginación por clave: las dos recorren el índice de la PK (cliente_pkey)
+    private static final String SELECT_PAGE_SQL =
+            "SELECT id, nombre, email FROM cliente WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_PAGE_BEFORE_SQL =
+            "SELECT id, nombre, email FROM cliente WHERE id < ? ORDER BY id DESC LIMIT ?";
+
+    // Salto desde la página conocida más cercana: el OFFSET solo recorre el tramo entre las dos
+    private static final String SELECT_PAGE_SKIP_SQL =
+            "SELECT id, nombre, email FROM cliente WHERE id > ? ORDER BY id OFFSET ? LIMIT ?";
 
-    private static final String SEARCH_SQL = """
-                    SELECT id, nombre, email
-                    FROM cliente
-                    WHERE CAST(id AS TEXT) ILIKE ? 
-                        OR nombre ILIKE ?  
-                        OR email ILIKE ?
-                    ORDER BY id                    
-                    """;
 
+    // Búsqueda por subcadena con índices de trigramas, ranking y LIMIT (ver TextSearch)
+    private static final TextSearch SEARCH =
+            new TextSearch("cliente", "id, nombre, email", "nombre", "email");
+
+    public ClienteDAO() {
+        super(INSERT_SQL, SELECT_ALL_SQL, SELECT_CAMBIADAS_SQL, TABLA);
+    }
 
     // ----------------------------------------------------------
     // MÉTODO: INSERTAR UN CLIENTE
@@ -92,6 +117,17 @@ public class ClienteDAO {
         }
     }
 
+    // ----------------------------------------------------------
+    // PARÁMETROS DEL INSERT (los usa insertAll, ver TablaDAO)
+    // ----------------------------------------------------------
+
+    @Override
+    protected void bindInsert(PreparedStatement ps, Cliente c) throws SQLException {
+        ps.setInt(1, c.getId());
+        ps.setString(2, c.getNombre());
+        ps.setString(3, c.getEmail());
+    }
+
     // ----------------------------------------------------------
     // MÉTODO: BUSCAR CLIENTE POR ID
     // ----------------------------------------------------------
@@ -125,6 +161,27 @@ public class ClienteDAO {
     }
 
 
+    // Los clientes de esos ids en una sola consulta, por id.
+    // Los que no existen (p. ej. ya borrados) simplemente no aparecen.
+    public List<Cliente> findByIds(Collection<Integer> ids) throws SQLException {
+        List<Cliente> out = new ArrayList<>();
+        if (ids.isEmpty()) return out;
+
+        try (Connection con = Db.getConnection();
+             PreparedStatement ps = con.prepareStatement(SELECT_BY_IDS_SQL)) {
+
+            ps.setArray(1, con.createArrayOf("integer", ids.toArray()));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(mapRow(rs));
+                }
+            }
+        }
+        return out;
+    }
+
+
     // ----------------------------------------------------------
     // MÉTODO: LISTAR TODOS LOS CLIENTES
     // ----------------------------------------------------------
@@ -156,29 +213,49 @@ public class ClienteDAO {
         return out;   // Devolvemos la lista completa.
     }
 
+    // Los TextSearch.DEFAULT_LIMIT más relevantes; ver search(filtro, limit)
     public List<Cliente> search(String filtro) throws SQLException {
+        return search(filtro, TextSearch.DEFAULT_LIMIT);
+    }
 
-        String patron = "%" + filtro + "%";
+    // Busca 'filtro' dentro del id, nombre o email (sin distinguir mayúsculas) y devuelve
+    // como mucho 'limit' filas, las más parecidas primero. Requiere la migración
+    // db/migration/V1__busqueda_trigram.sql para no recorrer la tabla entera.
+    public List<Cliente> search(String filtro, int limit) throws SQLException {
+        return SEARCH.search(filtro, limit, this::mapRow);
+    }
 
-        try (Connection con = Db.getConnection();
-             PreparedStatement pst = con.prepareStatement(SEARCH_SQL)) {
-            pst.setString(1, patron);
-            pst.setString(2, patron);
-            pst.setString(3, patron);
+    // Plan (EXPLAIN ANALYZE) de la consulta que lanza search(filtro, limit), para diagnosticar
+    public List<String> planBusqueda(String filtro, int limit) throws SQLException {
+        return SEARCH.plan(filtro, limit);
+    }
 
-            List<Cliente> out = new ArrayList<>();
+    // Paginación por clave (ver Keyset). Se apoya en el índice de la PK (cliente_pkey):
+    // cada página cuesta O(limit), esté donde esté. Primera página: afterId = Integer.MIN_VALUE.
+    public List<Cliente> page(int afterId, int limit) throws SQLException {
+        return Keyset.after(SELECT_PAGE_SQL, afterId, limit, this::mapRow);
+    }
 
-            try(ResultSet rs = pst.executeQuery()){
+    // Los 'limit' clientes anteriores a beforeId, en orden ascendente.
+    // Última página: beforeId = Integer.MAX_VALUE.
+    public List<Cliente> pageBefore(int beforeId, int limit) throws SQLException {
+        return Keyset.before(SELECT_PAGE_BEFORE_SQL, beforeId, limit, this::mapRow);
+    }
 
-                while (rs.next()){
-                    out.add(mapRow(rs));
-                }
-            }
-            return out;
-        }
+    // Como page(afterId, limit), pero saltándose antes 'skip' clientes. Para ir a una
+    // página lejana (tablas virtualizadas) partiendo de la última página conocida.
+    public List<Cliente> page(int afterId, long skip, int limit) throws SQLException {
+        return Keyset.after(SELECT_PAGE_SKIP_SQL, afterId, skip, limit, this::mapRow);
+    }
+
+    // Número aproximado de clientes según las estadísticas de la tabla (ver
+    // Keyset.estimatedRows): no la recorre, a diferencia de count(*).
+    public long estimatedCount() throws SQLException {
+        return Keyset.estimatedRows("cliente");
     }
 
-    private Cliente mapRow(ResultSet rs) throws SQLException {
+    @Override
+    protected Cliente mapRow(ResultSet rs) throws SQLException {
 
         Cliente c = new Cliente(
                 rs.getInt("id"),
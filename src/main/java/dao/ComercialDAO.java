@@ -10,13 +10,20 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
-public class ComercialDAO {
+public class ComercialDAO extends TablaConIdDAO<Comercial> {
 
     private static final String INSERT_SQL =
             "INSERT INTO comercial ( id, nombre, zonaventas) VALUES ( ?, ?, ?)";
     // Consulta SQL para insertar un comercial.
     // Usamos ? para parámetros > evita SQL injection y mejora rendimiento con sentencias preparadas.
 
+    // Columnas en el orden del INSERT (la primera es la clave). De aquí sale el SQL del
+    // upsert y de las escrituras en bloque de TablaDAO (ver BulkWrite.Tabla)
+    private static final BulkWrite.Tabla<Comercial> TABLA = new BulkWrite.Tabla<>("comercial", 1, List.of(
+            BulkWrite.col("id", "integer", Comercial::getId),
+            BulkWrite.col("nombre", "text", Comercial::getNombre),
+            BulkWrite.col("zonaventas", "text", Comercial::getZonaventas)));
+
     private static final String SELECT_BY_ID_SQL =
             "SELECT id, nombre, zonaventas FROM comercial WHERE id = ?";
     // Consulta SQL para buscar un comercial por su ID.
@@ -24,14 +31,18 @@ public class ComercialDAO {
     private static final String SELECT_ALL_SQL =
             "SELECT id, nombre, zonaventas FROM comercial ORDER BY id";
 
-    private static final String SEARCH_SQL = """
-                    SELECT id, nombre, zonaventas
-                    FROM comercial
-                    WHERE CAST(id AS TEXT) ILIKE ? 
-                        OR nombre ILIKE ?  
-                        OR zonaventas ILIKE ?
-                    ORDER BY id                    
-                    """;
+    // Filas cambiadas desde una copia anterior (exportación incremental, ver RegistroCambios)
+    private static final String SELECT_CAMBIADAS_SQL =
+            "SELECT id, nombre, zonaventas FROM comercial WHERE id IN (" + RegistroCambios.clavesCambiadas("comercial", 1) + ") ORDER BY id";
+
+    // Búsqueda por subcadena con índices de trigramas, ranking y LIMIT (ver TextSearch)
+    private static final TextSearch SEARCH =
+            new TextSearch("comercial", "id, nombre, zonaventas", "nombre", "zonaventas");
+
+    public ComercialDAO() {
+        super(INSERT_SQL, SELECT_ALL_SQL, SELECT_CAMBIADAS_SQL, TABLA);
+    }
+
     // ----------------------------------------------------------
     // MÉTODO: INSERTAR UN Comercial
     // ----------------------------------------------------------
@@ -75,6 +86,17 @@ public class ComercialDAO {
         }
     }
 
+    // ----------------------------------------------------------
+    // PARÁMETROS DEL INSERT (los usa insertAll, ver TablaDAO)
+    // ----------------------------------------------------------
+
+    @Override
+    protected void bindInsert(PreparedStatement ps, Comercial co) throws SQLException {
+        ps.setInt(1, co.getId());
+        ps.setString(2, co.getNombre());
+        ps.setString(3, co.getZonaventas());
+    }
+
     // ----------------------------------------------------------
     // MÉTODO: BUSCAR Comercial POR ID
     // ----------------------------------------------------------
@@ -116,29 +138,20 @@ public class ComercialDAO {
     }
 
 
+    // Los TextSearch.DEFAULT_LIMIT más relevantes; ver search(filtro, limit)
     public List<Comercial> search(String filtro) throws SQLException {
+        return search(filtro, TextSearch.DEFAULT_LIMIT);
+    }
 
-        String patron = "%" + filtro + "%";
-
-        try (Connection con = Db.getConnection();
-             PreparedStatement pst = con.prepareStatement(SEARCH_SQL)) {
-            pst.setString(1, patron);
-            pst.setString(2, patron);
-            pst.setString(3, patron);
-
-            List<Comercial> out = new ArrayList<>();
-
-            try(ResultSet rs = pst.executeQuery()){
-
-                while (rs.next()){
-                    out.add(mapRow(rs));
-                }
-            }
-            return out;
-        }
+    // Busca 'filtro' dentro del id, nombre o zonaventas (sin distinguir mayúsculas) y devuelve
+    // como mucho 'limit' filas, las más parecidas primero. Requiere la migración
+    // db/migration/V1__busqueda_trigram.sql para no recorrer la tabla entera.
+    public List<Comercial> search(String filtro, int limit) throws SQLException {
+        return SEARCH.search(filtro, limit, this::mapRow);
     }
 
-    private Comercial mapRow(ResultSet rs) throws SQLException {
+    @Override
+    protected Comercial mapRow(ResultSet rs) throws SQLException {
         return new Comercial(
                 rs.getInt("id"),
                 rs.getString("nombre"),
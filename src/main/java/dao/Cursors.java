@@ -0,0 +1,138 @@
+package dao;
+
+import db.Db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Recorrido de consultas grandes con cursor de servidor.
+ *
+ * El driver de PostgreSQL solo trae las filas de fetchSize en fetchSize si la
+ * conexión NO está en autocommit; si no, carga el resultado entero en memoria.
+ * Por eso forEach exige una transacción abierta, y los stream() abren la suya
+ * (de solo lectura) en una conexión del pool.
+ */
+final class Cursors {
+
+    // Filas por viaje si el llamador no indica otra cosa
+    static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private Cursors() { }
+
+    static <T> void forEach(Connection con, String sql, int fetchSize, RowMapper<T> mapper,
+                            Consumer<? super T> action, Object... params) throws SQLException {
+        if (con.getAutoCommit()) {
+            throw new SQLException("Para leer con cursor hace falta una transacción (autoCommit=false)");
+        }
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(mapper.map(rs));
+                }
+            }
+        }
+    }
+
+    /** Como forEach, pero en una conexión y transacción propias que se cierran al terminar. */
+    static <T> void stream(String sql, int fetchSize, RowMapper<T> mapper,
+                           Consumer<? super T> action, Object... params) throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
+            con.setReadOnly(true);
+            try {
+                forEach(con, sql, fetchSize, mapper, action, params);
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Stream perezoso sobre la consulta: las filas se piden al servidor de fetchSize
+     * en fetchSize según se consumen. Mantiene abiertas una conexión y su transacción
+     * hasta que se cierra, así que hay que usarlo en try-with-resources.
+     * Los errores de lectura salen como UncheckedSQLException.
+     */
+    static <T> Stream<T> stream(String sql, int fetchSize, RowMapper<T> mapper,
+                                Object... params) throws SQLException {
+        Connection con = Db.getConnection();
+        PreparedStatement ps = null;
+        ResultSet rs;
+        try {
+            con.setAutoCommit(false);
+            con.setReadOnly(true);
+            ps = con.prepareStatement(sql);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            rs = ps.executeQuery();
+        } catch (SQLException | RuntimeException e) {
+            cerrar(con, ps, null, e);
+            throw e;
+        }
+
+        PreparedStatement st = ps;
+        Spliterator<T> filas = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rs.next()) return false;
+                    action.accept(mapper.map(rs));
+                    return true;
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException(e);
+                }
+            }
+        };
+
+        return StreamSupport.stream(filas, false).onClose(() -> {
+            SQLException error = cerrar(con, st, rs, null);
+            if (error != null) throw new UncheckedSQLException(error);
+        });
+    }
+
+    /**
+     * Cierra ResultSet, sentencia y transacción (commit si no había error) y devuelve
+     * la conexión al pool. Los fallos al cerrar se añaden como suprimidos a 'causa';
+     * si no hay causa, se devuelve el primero.
+     */
+    private static SQLException cerrar(Connection con, PreparedStatement ps, ResultSet rs, Exception causa) {
+        SQLException primero = null;
+        AutoCloseable[] pasos = {
+                rs,
+                ps,
+                () -> { if (causa == null) con.commit(); else con.rollback(); },
+                () -> con.setAutoCommit(true),
+                con
+        };
+        for (AutoCloseable paso : pasos) {
+            if (paso == null) continue;
+            try {
+                paso.close();
+            } catch (Exception e) {
+                if (causa != null) causa.addSuppressed(e);
+                else if (primero == null) primero = e instanceof SQLException s ? s : new SQLException(e);
+                else primero.addSuppressed(e);
+            }
+        }
+        return primero;
+    }
+}
@@ -5,12 +5,13 @@ import model.DetalleCliente;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 //DAO para la tabla detalle_cliente.
 
 
-public class DetalleClienteDAO {
+public class DetalleClienteDAO extends TablaConIdDAO<DetalleCliente> {
 
     // =========================================================================
     //  SQL
@@ -22,6 +23,14 @@ public class DetalleClienteDAO {
             VALUES (?, ?, ?, ?)
             """;
 
+    // Columnas en el orden del INSERT (la primera es la clave). De aquí sale el SQL del
+    // upsert y de las escrituras en bloque de TablaDAO (ver BulkWrite.Tabla)
+    private static final BulkWrite.Tabla<DetalleCliente> TABLA = new BulkWrite.Tabla<>("detalle_cliente", 1, List.of(
+            BulkWrite.col("id", "integer", DetalleCliente::getId),
+            BulkWrite.col("direccion", "text", DetalleCliente::getDireccion),
+            BulkWrite.col("telefono", "text", DetalleClienteDAO::telefonoONull),
+            BulkWrite.col("notas", "text", DetalleCliente::getNotas)));
+
     // Consulta para obtener un detalle por su id (que coincide con id cliente).
     private static final String SELECT_BY_ID_SQL = """
             SELECT id, direccion, telefono, notas
@@ -29,6 +38,14 @@ public class DetalleClienteDAO {
             WHERE id = ?
             """;
 
+    // Consulta para obtener varios detalles de una vez (array de ids).
+    private static final String SELECT_BY_IDS_SQL = """
+            SELECT id, direccion, telefono, notas
+            FROM detalle_cliente
+            WHERE id = ANY(?)
+            ORDER BY id
+            """;
+
     // Consulta para listar todos los detalles (útil para debugging).
     private static final String SELECT_ALL_SQL = """
             SELECT id, direccion, telefono, notas
@@ -36,6 +53,14 @@ public class DetalleClienteDAO {
             ORDER BY id
             """;
 
+    // Consulta para recorrer los detalles cambiados desde una copia anterior (exportación incremental).
+    private static final String SELECT_CAMBIADAS_SQL = """
+            SELECT id, direccion, telefono, notas
+            FROM detalle_cliente
+            WHERE id IN (%s)
+            ORDER BY id
+            """.formatted(RegistroCambios.clavesCambiadas("detalle_cliente", 1));
+
     // Consulta para actualizar los datos del detalle.
     private static final String UPDATE_SQL = """
             UPDATE detalle_cliente
@@ -49,6 +74,10 @@ public class DetalleClienteDAO {
             WHERE id = ?
             """;
 
+    public DetalleClienteDAO() {
+        super(INSERT_SQL, SELECT_ALL_SQL, SELECT_CAMBIADAS_SQL, TABLA);
+    }
+
     // =========================================================================
     //  MÉTODOS CRUD
     // =========================================================================
@@ -96,6 +125,24 @@ public class DetalleClienteDAO {
         }
     }
 
+    @Override
+    protected void bindInsert(PreparedStatement ps, DetalleCliente d) throws SQLException {
+        ps.setInt(1, d.getId());
+        ps.setString(2, d.getDireccion());
+        String tel = d.getTelefono();
+        if (tel == null || tel.isBlank()) {
+            ps.setNull(3, Types.VARCHAR);
+        } else {
+            ps.setString(3, tel.trim());
+        }
+        ps.setString(4, d.getNotas());
+    }
+
+    // Teléfono vacío -> NULL, igual que en insert
+    private static String telefonoONull(DetalleCliente d) {
+        String tel = d.getTelefono();
+        return (tel == null || tel.isBlank()) ? null : tel.trim();
+    }
 
     //Obtiene un detalle según el ID (clave primaria).Devuelve null si no existe.
 
@@ -114,6 +161,27 @@ public class DetalleClienteDAO {
         }
     }
 
+    //Obtiene los detalles de varios clientes en una sola consulta.
+    //Los ids sin detalle simplemente no aparecen en la lista.
+
+    public List<DetalleCliente> findByIds(Collection<Integer> ids) throws SQLException {
+        List<DetalleCliente> out = new ArrayList<>();
+        if (ids.isEmpty()) return out;
+
+        try (Connection con = Db.getConnection();
+             PreparedStatement pst = con.prepareStatement(SELECT_BY_IDS_SQL)) {
+
+            pst.setArray(1, con.createArrayOf("integer", ids.toArray()));
+
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    out.add(mapRow(rs));
+                }
+            }
+        }
+        return out;
+    }
+
     // Lista todos los detalles cliente.
 
     public List<DetalleCliente> findAll() throws SQLException {
@@ -162,7 +230,8 @@ public class DetalleClienteDAO {
     // =========================================================================
 
     //Convierte una fila de ResultSet en un objeto DetalleCliente.
-    private DetalleCliente mapRow(ResultSet rs) throws SQLException {
+    @Override
+    protected DetalleCliente mapRow(ResultSet rs) throws SQLException {
         int id = rs.getInt("id");
         String direccion = rs.getString("direccion");
         String telefono = rs.getString("telefono");
@@ -5,13 +5,14 @@ import model.DetallePedido;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
  * DAO de DetallePedido.
  * Tabla intermedia N:M entre Pedido y Producto.
  */
-public class DetallePedidoDAO {
+public class DetallePedidoDAO extends TablaDAO<DetallePedido> {
 
     // ===============================
     // SQL
@@ -24,6 +25,17 @@ public class DetallePedidoDAO {
             VALUES (?, ?, ?, ?)
             """;
 
+    private static final String DELETE_BY_PEDIDO_IDS_SQL =
+            "DELETE FROM detalle_pedido WHERE pedido_id = ANY(?)";
+
+    // Columnas en el orden del INSERT (las dos primeras son la clave). De aquí sale el SQL
+    // del upsert y de las escrituras en bloque de TablaDAO (ver BulkWrite.Tabla)
+    private static final BulkWrite.Tabla<DetallePedido> TABLA = new BulkWrite.Tabla<>("detalle_pedido", 2, List.of(
+            BulkWrite.col("pedido_id", "integer", DetallePedido::getPedidoId),
+            BulkWrite.col("producto_id", "integer", DetallePedido::getProductoId),
+            BulkWrite.col("cantidad", "integer", DetallePedido::getCantidad),
+            BulkWrite.col("precio_unit", "float8", DetallePedido::getPrecioUnit)));
+
     private static final String SELECT_ALL_SQL =
             """
             SELECT pedido_id, producto_id, cantidad, precio_unit
@@ -31,6 +43,15 @@ public class DetallePedidoDAO {
             ORDER BY pedido_id, producto_id
             """;
 
+    // Líneas cambiadas desde una copia anterior (exportación incremental, ver RegistroCambios)
+    private static final String SELECT_CAMBIADAS_SQL =
+            """
+            SELECT pedido_id, producto_id, cantidad, precio_unit
+            FROM detalle_pedido
+            WHERE (pedido_id, producto_id) IN (%s)
+            ORDER BY pedido_id, producto_id
+            """.formatted(RegistroCambios.clavesCambiadas("detalle_pedido", 2));
+
     private static final String SELECT_BY_PEDIDO_SQL =
             """
             SELECT pedido_id, producto_id, cantidad, precio_unit
@@ -39,6 +60,10 @@ public class DetallePedidoDAO {
             ORDER BY producto_id
             """;
 
+    public DetallePedidoDAO() {
+        super(INSERT_SQL, SELECT_ALL_SQL, SELECT_CAMBIADAS_SQL, TABLA);
+    }
+
     // ===============================
     // CRUD BÁSICO
     // ===============================
@@ -56,6 +81,30 @@ public class DetallePedidoDAO {
         }
     }
 
+    @Override
+    protected void bindInsert(PreparedStatement ps, DetallePedido dp) throws SQLException {
+        ps.setInt(1, dp.getPedidoId());
+        ps.setInt(2, dp.getProductoId());
+        ps.setInt(3, dp.getCantidad());
+        ps.setDouble(4, dp.getPrecioUnit());
+    }
+
+    // ===============================
+    // UPSERT Y ESCRITURAS EN BLOQUE
+    // ===============================
+
+    // upsert, upsertAll, updateAll y deleteAll (por clave) vienen de TablaDAO.
+    // Con clave compuesta no hay deleteAllByIds: se borra por pedido o por clave
+
+    // Borra todas las líneas de esos pedidos.
+    public int deleteAllByPedidoIds(Collection<Integer> pedidoIds) throws SQLException {
+        return BulkWrite.deleteByIds(DELETE_BY_PEDIDO_IDS_SQL, pedidoIds);
+    }
+
+    public int deleteAllByPedidoIds(Collection<Integer> pedidoIds, Connection con) throws SQLException {
+        return BulkWrite.deleteByIds(DELETE_BY_PEDIDO_IDS_SQL, pedidoIds, con);
+    }
+
     public List<DetallePedido> findAll() throws SQLException {
         List<DetallePedido> out = new ArrayList<>();
 
@@ -95,7 +144,8 @@ public class DetallePedidoDAO {
     // MAPEADOR
     // ===============================
 
-    private DetallePedido mapRow(ResultSet rs) throws SQLException {
+    @Override
+    protected DetallePedido mapRow(ResultSet rs) throws SQLException {
         return new DetallePedido(
                 rs.getInt("pedido_id"),
                 rs.getInt("producto_id"),
@@ -10,7 +10,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
-public class EnvioDAO {
+public class EnvioDAO extends TablaConIdDAO<Envio> {
     //EnvioDAO: Gestiona la entidad Envio, que es una "tabla de unión" compleja.
     // Su función principal es el mapeo Objeto-Relacional (ORM) manual:
     // convierte filas de SQL con JOINS en objetos Java anidados.
@@ -24,13 +24,23 @@ public class EnvioDAO {
         INSERT INTO envio (id, pedido_id, comercial_id, repartidor_id)
         VALUES (?, ?, ?, ?)
         """;
+
+    // Columnas en el orden del INSERT (la primera es la clave). De aquí sale el SQL del
+    // upsert y de las escrituras en bloque de TablaDAO (ver BulkWrite.Tabla)
+    private static final BulkWrite.Tabla<Envio> TABLA = new BulkWrite.Tabla<>("envio", 1, List.of(
+            BulkWrite.col("id", "integer", Envio::getId),
+            BulkWrite.col("pedido_id", "integer", e -> e.getPedido().getId()),
+            BulkWrite.col("comercial_id", "integer", e -> e.getComercial().getId()),
+            BulkWrite.col("repartidor_id", "integer", e -> e.getRepartidor().getId())));
+
     /**
      * Usamos JOINs:
      * Como un Envio tiene un Pedido, un Comercial y un Repartidor,
      * usamos SQL para traer toda la información relacionada de un solo golpe.
      * Usamos AS (Alias) para evitar conflictos si varias tablas tienen columnas llamadas 'id' o 'nombre'.
+     * Sin WHERE ni ORDER BY: es la base de las consultas de abajo.
      */
-    private static final String SELECT_ALL_SQL = """
+    private static final String SELECT_BASE_SQL = """
         SELECT 
           e.id AS envio_id,
           p.id AS pedido_id, p.cliente_id, p.fecha,
@@ -42,9 +52,56 @@ public class EnvioDAO {
         JOIN repartidor r ON e.repartidor_id = r.id
         """;
 
+    // Todos, en orden de id (findAll y los recorridos con cursor de TablaDAO)
+    private static final String SELECT_ALL_SQL = SELECT_BASE_SQL + " ORDER BY e.id";
+
 //Reutiliza el anterior y le añade el filtro por ID
-    private static final String SELECT_BY_ID_SQL = SELECT_ALL_SQL + " WHERE e.id = ?";
+    private static final String SELECT_BY_ID_SQL = SELECT_BASE_SQL + " WHERE e.id = ?";
+
+    // Envíos cambiados desde una copia anterior, en orden (exportación incremental)
+    private static final String SELECT_CAMBIADAS_SQL = SELECT_BASE_SQL
+            + " WHERE e.id IN (" + RegistroCambios.clavesCambiadas("envio", 1) + ") ORDER BY e.id";
 
+    // Paginación por clave sobre envio.id (índice envio_pkey); los JOIN son por PK
+    // de cada tabla, así que la página cuesta 'limit' búsquedas por índice
+    private static final String SELECT_PAGE_SQL = SELECT_BASE_SQL + " WHERE e.id > ? ORDER BY e.id LIMIT ?";
+
+    private static final String SELECT_PAGE_BEFORE_SQL = SELECT_BASE_SQL + " WHERE e.id < ? ORDER BY e.id DESC LIMIT ?";
+
+    /**
+     * Envíos con el pedido completo (fecha y líneas) en una sola consulta.
+     * El CTE 'sel' elige los envíos (así el LIMIT cuenta envíos, no líneas) y el
+     * LEFT JOIN con detalle_pedido devuelve una fila por línea; un pedido sin
+     * líneas sale una vez con las columnas de la línea a NULL.
+     * Las filas llegan ordenadas por envío, y se agrupan en Java (ver leerConLineas).
+     */
+    private static final String SELECT_CON_LINEAS_SQL = """
+        WITH sel AS (
+          %s
+        )
+        SELECT
+          e.id AS envio_id,
+          p.id AS pedido_id, p.cliente_id, p.fecha,
+          c.id AS comercial_id, c.nombre AS comercial_nombre, c.zonaventas,
+          r.id AS repartidor_id, r.nombre AS repartidor_nombre, r.vehiculo,
+          d.producto_id, d.cantidad, d.precio_unit
+        FROM sel e
+        JOIN pedido p ON e.pedido_id = p.id
+        JOIN comercial c ON e.comercial_id = c.id
+        JOIN repartidor r ON e.repartidor_id = r.id
+        LEFT JOIN detalle_pedido d ON d.pedido_id = p.id
+        ORDER BY e.id, d.producto_id
+        """;
+
+    private static final String SELECT_PAGE_CON_LINEAS_SQL = SELECT_CON_LINEAS_SQL.formatted(
+            "SELECT id, pedido_id, comercial_id, repartidor_id FROM envio WHERE id > ? ORDER BY id LIMIT ?");
+
+    private static final String SELECT_BY_ID_CON_LINEAS_SQL = SELECT_CON_LINEAS_SQL.formatted(
+            "SELECT id, pedido_id, comercial_id, repartidor_id FROM envio WHERE id = ?");
+
+    public EnvioDAO() {
+        super(INSERT_SQL, SELECT_ALL_SQL, SELECT_CAMBIADAS_SQL, TABLA);
+    }
 
     /**
      * Método estático para insertar.
@@ -63,6 +120,15 @@ public class EnvioDAO {
             pst.executeUpdate();
         }
     }
+
+    @Override
+    protected void bindInsert(PreparedStatement ps, Envio e) throws SQLException {
+        ps.setInt(1, e.getId());
+        ps.setInt(2, e.getPedido().getId());
+        ps.setInt(3, e.getComercial().getId());
+        ps.setInt(4, e.getRepartidor().getId());
+    }
+
     /**
      * Recupera todos los envíos.
      * Utiliza el método auxiliar 'mapRow' para no repetir código de conversión.
@@ -80,6 +146,18 @@ public class EnvioDAO {
         return out;
     }
 
+    // Paginación por clave (ver Keyset). Se apoya en el índice de la PK (envio_pkey):
+    // cada página cuesta O(limit), esté donde esté. Primera página: afterId = Integer.MIN_VALUE.
+    public List<Envio> page(int afterId, int limit) throws SQLException {
+        return Keyset.after(SELECT_PAGE_SQL, afterId, limit, this::mapRow);
+    }
+
+    // Los 'limit' envíos anteriores a beforeId, en orden ascendente.
+    // Última página: beforeId = Integer.MAX_VALUE.
+    public List<Envio> pageBefore(int beforeId, int limit) throws SQLException {
+        return Keyset.before(SELECT_PAGE_BEFORE_SQL, beforeId, limit, this::mapRow);
+    }
+
     public Envio findById(int id) throws SQLException {
         try (Connection con = Db.getConnection();
              PreparedStatement pst = con.prepareStatement(SELECT_BY_ID_SQL)) {
@@ -92,17 +170,78 @@ public class EnvioDAO {
         return null;
     }
 
+    /**
+     * Página de envíos (id > afterId, como mucho 'limit') con el pedido completo:
+     * fecha y líneas, así que getPedido().getTotal() ya es el total real.
+     * Un único viaje a la BD para toda la página. Primera página: afterId = Integer.MIN_VALUE.
+     */
+    public List<Envio> findPageWithLineas(int afterId, int limit) throws SQLException {
+        try (Connection con = Db.getConnection();
+             PreparedStatement pst = con.prepareStatement(SELECT_PAGE_CON_LINEAS_SQL)) {
+
+            pst.setInt(1, afterId);
+            pst.setInt(2, limit);
+            try (ResultSet rs = pst.executeQuery()) {
+                return leerConLineas(rs);
+            }
+        }
+    }
+
+    // Como findById, pero con el pedido completo (fecha y líneas)
+    public Envio findByIdWithLineas(int id) throws SQLException {
+        try (Connection con = Db.getConnection();
+             PreparedStatement pst = con.prepareStatement(SELECT_BY_ID_CON_LINEAS_SQL)) {
+
+            pst.setInt(1, id);
+            try (ResultSet rs = pst.executeQuery()) {
+                List<Envio> out = leerConLineas(rs);
+                return out.isEmpty() ? null : out.get(0);
+            }
+        }
+    }
+
+    /**
+     * Agrupa las filas (una por línea de pedido, ordenadas por envío):
+     * cada vez que cambia envio_id empieza un Envio nuevo, y cada fila con
+     * producto_id añade una línea a su pedido.
+     */
+    private List<Envio> leerConLineas(ResultSet rs) throws SQLException {
+        List<Envio> out = new ArrayList<>();
+        Envio actual = null;
+
+        while (rs.next()) {
+            int envioId = rs.getInt("envio_id");
+            if (actual == null || actual.getId() != envioId) {
+                actual = mapRow(rs);
+                out.add(actual);
+            }
+
+            int productoId = rs.getInt("producto_id");
+            if (!rs.wasNull()) {
+                actual.getPedido().getLineas().add(new DetallePedido(
+                        actual.getPedido().getId(),
+                        productoId,
+                        rs.getInt("cantidad"),
+                        rs.getDouble("precio_unit")
+                ));
+            }
+        }
+        return out;
+    }
+
     /**
      * mapRow: Este método es el encargado de tomar una fila del ResultSet (que es plana) y crea la jerarquía de objetos Java:
      * Envio -> contiene Pedido
      * -> contiene Comercial
      * -> contiene Repartidor
      */
-    private Envio mapRow(ResultSet rs) throws SQLException {
-        // 1. Creamos el Pedido (solo con los datos que tenemos en el JOIN)
+    @Override
+    protected Envio mapRow(ResultSet rs) throws SQLException {
+        // 1. Creamos el Pedido (sin líneas: solo las traen las consultas *WithLineas)
         Pedido pedido = new Pedido(
                 rs.getInt("pedido_id"),
-                rs.getInt("cliente_id")
+                rs.getInt("cliente_id"),
+                rs.getDate("fecha").toLocalDate()
         );
 
 
@@ -0,0 +1,120 @@
+package dao;
+
+import db.Db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Paginación por clave ("keyset" o "seek"): en vez de OFFSET, cada página
+ * empieza justo después (o antes) del último id visto.
+ *
+ *   siguiente: WHERE id > ? ORDER BY id ASC  LIMIT ?
+ *   anterior:  WHERE id < ? ORDER BY id DESC LIMIT ?   (y se le da la vuelta en Java)
+ *
+ * Con un índice B-tree sobre id (el de la PK) PostgreSQL baja por el índice
+ * hasta el id y lee 'limit' entradas: cuesta lo mismo la página 1 que la
+ * página 10 000. Con OFFSET tendría que recorrer y descartar todas las anteriores.
+ *
+ * Las consultas que recibe deben tener exactamente esos dos parámetros (id, limit),
+ * salvo after(sql, afterId, skip, ...), que añade el OFFSET entre los dos.
+ */
+final class Keyset {
+
+    private Keyset() { }
+
+    /**
+     * Página en orden ascendente con ids > afterId. Para la primera página,
+     * afterId = Integer.MIN_VALUE (no 0: los ids 0 o negativos también son válidos).
+     */
+    static <T> List<T> after(String sql, int afterId, int limit, RowMapper<T> mapper) throws SQLException {
+        return run(sql, afterId, limit, mapper);
+    }
+
+    /**
+     * Las 'limit' filas inmediatamente anteriores a beforeId, devueltas también en
+     * orden ascendente. Para la última página, beforeId = Integer.MAX_VALUE.
+     */
+    static <T> List<T> before(String sql, int beforeId, int limit, RowMapper<T> mapper) throws SQLException {
+        List<T> out = run(sql, beforeId, limit, mapper);
+        Collections.reverse(out);
+        return out;
+    }
+
+    /**
+     * Como after(), pero saltándose antes 'skip' filas: sirve para llegar a una
+     * página lejana desde la página conocida más cercana. El OFFSET recorre solo
+     * el tramo del índice entre las dos, no la tabla desde el principio.
+     * Esta consulta lleva tres parámetros (id, offset, limit).
+     */
+    static <T> List<T> after(String sql, int afterId, long skip, int limit, RowMapper<T> mapper)
+            throws SQLException {
+        if (skip < 0) throw new IllegalArgumentException("skip debe ser >= 0");
+        return run(sql, afterId, skip, limit, mapper);
+    }
+
+    /**
+     * Número aproximado de filas sin recorrer la tabla: reltuples/relpages de
+     * pg_class (último ANALYZE o autovacuum) escalado al tamaño actual de la
+     * tabla, igual que hace el planificador. Solo si la tabla no se ha analizado
+     * nunca se cuenta de verdad con count(*).
+     */
+    static long estimatedRows(String table) throws SQLException {
+        String estimado = """
+                SELECT CASE WHEN reltuples < 0 OR relpages = 0 THEN NULL
+                            ELSE round(reltuples / relpages
+                                       * (pg_relation_size(oid) / current_setting('block_size')::int))
+                       END::bigint AS estimado
+                FROM pg_class
+                WHERE oid = ?::regclass
+                """;
+
+        try (Connection con = Db.getConnection()) {
+            try (PreparedStatement ps = con.prepareStatement(estimado)) {
+                ps.setString(1, table);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        long n = rs.getLong("estimado");
+                        if (!rs.wasNull()) return n;
+                    }
+                }
+            }
+            try (PreparedStatement ps = con.prepareStatement("SELECT count(*) FROM " + table);
+                 ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private static <T> List<T> run(String sql, int id, int limit, RowMapper<T> mapper) throws SQLException {
+        return run(sql, id, -1, limit, mapper);
+    }
+
+    // skip < 0: la consulta no lleva OFFSET
+    private static <T> List<T> run(String sql, int id, long skip, int limit, RowMapper<T> mapper)
+            throws SQLException {
+        if (limit < 1) throw new IllegalArgumentException("limit debe ser >= 1");
+
+        List<T> out = new ArrayList<>(limit);
+        try (Connection con = Db.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+
+            int i = 1;
+            ps.setInt(i++, id);
+            if (skip >= 0) ps.setLong(i++, skip);
+            ps.setInt(i, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(mapper.map(rs));
+                }
+            }
+        }
+        return out;
+    }
+}
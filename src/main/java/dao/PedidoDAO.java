@@ -1,18 +1,21 @@
 package dao;
 
 import db.Db;
+import model.DetallePedido;
 import model.Pedido;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO de la entidad Pedido.
  * Relación N:1 con Cliente.
  */
-public class PedidoDAO {
+public class PedidoDAO extends TablaConIdDAO<Pedido> {
 
     // ===============================
     // SQL
@@ -21,12 +24,50 @@ public class PedidoDAO {
     private static final String INSERT_SQL =
             "INSERT INTO pedido (id, cliente_id, fecha) VALUES (?, ?, ?)";
 
+    // Columnas en el orden del INSERT (la primera es la clave). De aquí sale el SQL del
+    // upsert y de las escrituras en bloque de TablaDAO (ver BulkWrite.Tabla)
+    private static final BulkWrite.Tabla<Pedido> TABLA = new BulkWrite.Tabla<>("pedido", 1, List.of(
+            BulkWrite.col("id", "integer", Pedido::getId),
+            BulkWrite.col("cliente_id", "integer", Pedido::getClienteId),
+            BulkWrite.col("fecha", "date", p -> p.getFecha() == null ? null : Date.valueOf(p.getFecha()))));
+
     private static final String SELECT_BY_ID_SQL =
             "SELECT id, cliente_id, fecha FROM pedido WHERE id = ?";
 
     private static final String SELECT_ALL_SQL =
             "SELECT id, cliente_id, fecha FROM pedido ORDER BY id";
 
+    // Filas cambiadas desde una copia anterior (exportación incremental, ver RegistroCambios)
+    private static final String SELECT_CAMBIADAS_SQL =
+            "SELECT id, cliente_id, fecha FROM pedido WHERE id IN (" + RegistroCambios.clavesCambiadas("pedido", 1) + ") ORDER BY id";
+
+    private static final String SELECT_PAGE_SQL =
+            "SELECT id, cliente_id, fecha FROM pedido WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_PAGE_BEFORE_SQL =
+            "SELECT id, cliente_id, fecha FROM pedido WHERE id < ? ORDER BY id DESC LIMIT ?";
+
+    // Líneas de todos los pedidos, ya ordenadas como se muestran
+    private static final String SELECT_ALL_LINEAS_SQL =
+            """
+            SELECT pedido_id, producto_id, cantidad, precio_unit
+            FROM detalle_pedido
+            ORDER BY pedido_id, producto_id
+            """;
+
+    // Líneas de un conjunto de pedidos en una sola consulta (array de ids)
+    private static final String SELECT_LINEAS_BY_PEDIDOS_SQL =
+            """
+            SELECT pedido_id, producto_id, cantidad, precio_unit
+            FROM detalle_pedido
+            WHERE pedido_id = ANY(?)
+            ORDER BY pedido_id, producto_id
+            """;
+
+    public PedidoDAO() {
+        super(INSERT_SQL, SELECT_ALL_SQL, SELECT_CAMBIADAS_SQL, TABLA);
+    }
+
     // ===============================
     // CRUD BÁSICO
     // ===============================
@@ -43,6 +84,13 @@ public class PedidoDAO {
         }
     }
 
+    @Override
+    protected void bindInsert(PreparedStatement ps, Pedido p) throws SQLException {
+        ps.setInt(1, p.getId());
+        ps.setInt(2, p.getClienteId());
+        ps.setDate(3, Date.valueOf(p.getFecha()));
+    }
+
     public Pedido findById(int id) throws SQLException {
         try (Connection con = Db.getConnection();
              PreparedStatement pst = con.prepareStatement(SELECT_BY_ID_SQL)) {
@@ -73,15 +121,108 @@ public class PedidoDAO {
         return out;
     }
 
+    // ===============================
+    // PEDIDOS CON SUS LÍNEAS
+    // ===============================
+
+    // Todos los pedidos con sus líneas ya cargadas en getLineas().
+    // Dos consultas en la misma conexión (pedidos + todas las líneas) en lugar
+    // de una consulta de líneas por pedido.
+    public List<Pedido> findAllWithLineas() throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            Map<Integer, Pedido> porId = new LinkedHashMap<>();
+
+            try (PreparedStatement pst = con.prepareStatement(SELECT_ALL_SQL);
+                 ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    Pedido p = mapRow(rs);
+                    porId.put(p.getId(), p);
+                }
+            }
+
+            try (PreparedStatement pst = con.prepareStatement(SELECT_ALL_LINEAS_SQL);
+                 ResultSet rs = pst.executeQuery()) {
+                asignarLineas(rs, porId);
+            }
+
+            return new ArrayList<>(porId.values());
+        }
+    }
+
+    // Página de pedidos (id > afterId, como mucho 'limit') con sus líneas.
+    // Para recorrer todo: empezar con afterId = Integer.MIN_VALUE y pasar el id del último pedido
+    // devuelto hasta que llegue una página vacía.
+    public List<Pedido> findPageWithLineas(int afterId, int limit) throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            Map<Integer, Pedido> porId = new LinkedHashMap<>();
+
+            try (PreparedStatement pst = con.prepareStatement(SELECT_PAGE_SQL)) {
+                pst.setInt(1, afterId);
+                pst.setInt(2, limit);
+                try (ResultSet rs = pst.executeQuery()) {
+                    while (rs.next()) {
+                        Pedido p = mapRow(rs);
+                        porId.put(p.getId(), p);
+                    }
+                }
+            }
+            if (porId.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            try (PreparedStatement pst = con.prepareStatement(SELECT_LINEAS_BY_PEDIDOS_SQL)) {
+                pst.setArray(1, con.createArrayOf("integer", porId.keySet().toArray()));
+                try (ResultSet rs = pst.executeQuery()) {
+                    asignarLineas(rs, porId);
+                }
+            }
+
+            return new ArrayList<>(porId.values());
+        }
+    }
+
+    // Reparte las líneas entre sus pedidos. Si entre las dos consultas se ha
+    // creado un pedido con líneas, esas líneas no tienen pedido en el mapa y se ignoran.
+    private static void asignarLineas(ResultSet rs, Map<Integer, Pedido> porId) throws SQLException {
+        while (rs.next()) {
+            Pedido p = porId.get(rs.getInt("pedido_id"));
+            if (p != null) {
+                p.getLineas().add(mapLinea(rs));
+            }
+        }
+    }
+
+    // Paginación por clave (ver Keyset). Se apoya en el índice de la PK (pedido_pkey):
+    // cada página cuesta O(limit), esté donde esté. Primera página: afterId = Integer.MIN_VALUE.
+    public List<Pedido> page(int afterId, int limit) throws SQLException {
+        return Keyset.after(SELECT_PAGE_SQL, afterId, limit, this::mapRow);
+    }
+
+    // Los 'limit' pedidos anteriores a beforeId, en orden ascendente.
+    // Última página: beforeId = Integer.MAX_VALUE.
+    public List<Pedido> pageBefore(int beforeId, int limit) throws SQLException {
+        return Keyset.before(SELECT_PAGE_BEFORE_SQL, beforeId, limit, this::mapRow);
+    }
+
     // ===============================
     // MAPEADOR
     // ===============================
 
-    private Pedido mapRow(ResultSet rs) throws SQLException {
+    @Override
+    protected Pedido mapRow(ResultSet rs) throws SQLException {
         return new Pedido(
                 rs.getInt("id"),
                 rs.getInt("cliente_id"),
                 rs.getDate("fecha").toLocalDate()
         );
     }
-}
\ No newline at end of file
+
+    private static DetallePedido mapLinea(ResultSet rs) throws SQLException {
+        return new DetallePedido(
+                rs.getInt("pedido_id"),
+                rs.getInt("producto_id"),
+                rs.getInt("cantidad"),
+                rs.getDouble("precio_unit")
+        );
+    }
+}
@@ -11,7 +11,7 @@ import java.util.List;
  * DAO de la entidad Producto.
  * Encapsula todo el acceso JDBC a la tabla producto.
  */
-public class ProductoDAO {
+public class ProductoDAO extends TablaConIdDAO<Producto> {
 
     // ===============================
     // SQL
@@ -20,12 +20,27 @@ public class ProductoDAO {
     private static final String INSERT_SQL =
             "INSERT INTO producto (id, nombre, precio) VALUES (?, ?, ?)";
 
+    // Columnas en el orden del INSERT (la primera es la clave). De aquí sale el SQL del
+    // upsert y de las escrituras en bloque de TablaDAO (ver BulkWrite.Tabla)
+    private static final BulkWrite.Tabla<Producto> TABLA = new BulkWrite.Tabla<>("producto", 1, List.of(
+            BulkWrite.col("id", "integer", Producto::getId),
+            BulkWrite.col("nombre", "text", Producto::getNombre),
+            BulkWrite.col("precio", "float8", Producto::getPrecio)));
+
     private static final String SELECT_BY_ID_SQL =
             "SELECT id, nombre, precio FROM producto WHERE id = ?";
 
     private static final String SELECT_ALL_SQL =
             "SELECT id, nombre, precio FROM producto ORDER BY id";
 
+    // Filas cambiadas desde una copia anterior (exportación incremental, ver RegistroCambios)
+    private static final String SELECT_CAMBIADAS_SQL =
+            "SELECT id, nombre, precio FROM producto WHERE id IN (" + RegistroCambios.clavesCambiadas("producto", 1) + ") ORDER BY id";
+
+    public ProductoDAO() {
+        super(INSERT_SQL, SELECT_ALL_SQL, SELECT_CAMBIADAS_SQL, TABLA);
+    }
+
     // ===============================
     // CRUD BÁSICO
     // ===============================
@@ -42,6 +57,13 @@ public class ProductoDAO {
         }
     }
 
+    @Override
+    protected void bindInsert(PreparedStatement ps, Producto p) throws SQLException {
+        ps.setInt(1, p.getId());
+        ps.setString(2, p.getNombre());
+        ps.setDouble(3, p.getPrecio());
+    }
+
     public Producto findById(int id) throws SQLException {
         try (Connection con = Db.getConnection();
              PreparedStatement pst = con.prepareStatement(SELECT_BY_ID_SQL)) {
@@ -76,7 +98,8 @@ public class ProductoDAO {
     // MAPEADOR
     // ===============================
 
-    private Producto mapRow(ResultSet rs) throws SQLException {
+    @Override
+    protected Producto mapRow(ResultSet rs) throws SQLException {
         return new Producto(
                 rs.getInt("id"),
                 rs.getString("nombre"),
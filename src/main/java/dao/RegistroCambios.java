@@ -0,0 +1,86 @@
+package dao;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Consumer;
+
+/**
+ * Consultas sobre la tabla registro_cambios (migración SqlScripts.REGISTRO_CAMBIOS):
+ * qué claves de cada tabla se han insertado, modificado o borrado desde una copia.
+ *
+ * "Desde una copia" se mide con el snapshot de PostgreSQL (pg_current_snapshot())
+ * de su transacción: una clave ha cambiado si la transacción que la tocó por última
+ * vez no era visible en ese snapshot. No depende del orden de los ids ni del orden
+ * en que confirmen las transacciones.
+ */
+public final class RegistroCambios {
+
+    // Claves tocadas por transacciones que no ve el snapshot (? y ? = el mismo snapshot).
+    // La condición sobre xmin solo sirve para que use el índice (tabla, xid).
+    private static final String CAMBIADAS_SQL = """
+            SELECT %s FROM registro_cambios r
+            WHERE r.tabla = '%s' AND %s r.borrado
+              AND r.xid >= pg_snapshot_xmin(?::pg_snapshot)
+              AND NOT pg_visible_in_snapshot(r.xid, ?::pg_snapshot)
+            """;
+
+    private RegistroCambios() { }
+
+    /** true si la migración está instalada en esta BD. */
+    public static boolean instalado(Connection con) throws SQLException {
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT to_regclass('registro_cambios') IS NOT NULL")) {
+            rs.next();
+            return rs.getBoolean(1);
+        }
+    }
+
+    /**
+     * Snapshot de la transacción actual en texto. Con REPEATABLE READ hay que
+     * pedirlo antes que nada en la transacción para que coincida con lo leído.
+     */
+    public static String snapshotActual(Connection con) throws SQLException {
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT pg_current_snapshot()::text")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    /**
+     * Subconsulta con las claves (clave[1], clave[2], ...) de las filas de 'tabla'
+     * que siguen existiendo y han cambiado desde un snapshot. Lleva dos ?: el
+     * snapshot dos veces. La usan los DAO para su SELECT de filas cambiadas.
+     */
+    static String clavesCambiadas(String tabla, int nClaves) {
+        StringBuilder cols = new StringBuilder();
+        for (int i = 1; i <= nClaves; i++) {
+            if (i > 1) cols.append(", ");
+            cols.append("r.clave[").append(i).append(']');
+        }
+        return CAMBIADAS_SQL.formatted(cols, tabla, "NOT");
+    }
+
+    /** Claves de las filas de 'tabla' borradas desde el snapshot (en la misma transacción que se lee). */
+    public static void forEachBorrada(Connection con, String tabla, String snapshot,
+                                      Consumer<int[]> action) throws SQLException {
+        String sql = CAMBIADAS_SQL.formatted("r.clave", tabla, "") + " ORDER BY r.clave";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, snapshot);
+            ps.setString(2, snapshot);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Array a = rs.getArray(1);
+                    Integer[] clave = (Integer[]) a.getArray();
+                    int[] out = new int[clave.length];
+                    for (int i = 0; i < clave.length; i++) out[i] = clave[i];
+                    action.accept(out);
+                }
+            }
+        }
+    }
+}
@@ -9,12 +9,19 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
-public class RepartidorDAO {
+public class RepartidorDAO extends TablaConIdDAO<Repartidor> {
     private static final String INSERT_SQL =
             "INSERT INTO repartidor (id, nombre, vehiculo) VALUES (?, ?, ?)";
     // Consulta SQL para insertar un Repartidor.
     // Usamos ? para parámetros > evita SQL injection y mejora rendimiento con sentencias preparadas.
 
+    // Columnas en el orden del INSERT (la primera es la clave). De aquí sale el SQL del
+    // upsert y de las escrituras en bloque de TablaDAO (ver BulkWrite.Tabla)
+    private static final BulkWrite.Tabla<Repartidor> TABLA = new BulkWrite.Tabla<>("repartidor", 1, List.of(
+            BulkWrite.col("id", "integer", Repartidor::getId),
+            BulkWrite.col("nombre", "text", Repartidor::getNombre),
+            BulkWrite.col("vehiculo", "text", Repartidor::getVehiculo)));
+
     private static final String SELECT_BY_ID_SQL =
             "SELECT id, nombre, vehiculo FROM repartidor WHERE id = ?";
     // Consulta SQL para buscar un repartidor por su ID.
@@ -22,14 +29,18 @@ public class RepartidorDAO {
     private static final String SELECT_ALL_SQL =
             "SELECT id, nombre, vehiculo FROM repartidor ORDER BY id";
 
-    private static final String SEARCH_SQL = """
-                    SELECT id, nombre, vehiculo
-                    FROM repartidor
-                    WHERE CAST(id AS TEXT) ILIKE ? 
-                        OR nombre ILIKE ?  
-                        OR vehiculo ILIKE ?
-                    ORDER BY id                    
-                    """;
+    // Filas cambiadas desde una copia anterior (exportación incremental, ver RegistroCambios)
+    private static final String SELECT_CAMBIADAS_SQL =
+            "SELECT id, nombre, vehiculo FROM repartidor WHERE id IN (" + RegistroCambios.clavesCambiadas("repartidor", 1) + ") ORDER BY id";
+
+    // Búsqueda por subcadena con índices de trigramas, ranking y LIMIT (ver TextSearch)
+    private static final TextSearch SEARCH =
+            new TextSearch("repartidor", "id, nombre, vehiculo", "nombre", "vehiculo");
+
+    public RepartidorDAO() {
+        super(INSERT_SQL, SELECT_ALL_SQL, SELECT_CAMBIADAS_SQL, TABLA);
+    }
+
     // ----------------------------------------------------------
     // MÉTODO: INSERTAR UN REPARTIDOR
     // ----------------------------------------------------------
@@ -72,6 +83,17 @@ public class RepartidorDAO {
         }
     }
 
+    // ----------------------------------------------------------
+    // PARÁMETROS DEL INSERT (los usa insertAll, ver TablaDAO)
+    // ----------------------------------------------------------
+
+    @Override
+    protected void bindInsert(PreparedStatement ps, Repartidor r) throws SQLException {
+        ps.setInt(1, r.getId());
+        ps.setString(2, r.getNombre());
+        ps.setString(3, r.getVehiculo());
+    }
+
 // ----------------------------------------------------------
     // MÉTODO: BUSCAR REPARTIDOR POR ID
     // ----------------------------------------------------------
@@ -114,29 +136,20 @@ public class RepartidorDAO {
     }
 
 
+    // Los TextSearch.DEFAULT_LIMIT más relevantes; ver search(filtro, limit)
     public List<Repartidor> search(String filtro) throws SQLException {
+        return search(filtro, TextSearch.DEFAULT_LIMIT);
+    }
 
-        String patron = "%" + filtro + "%";
-
-        try (Connection con = Db.getConnection();
-             PreparedStatement pst = con.prepareStatement(SEARCH_SQL)) {
-            pst.setString(1, patron);
-            pst.setString(2, patron);
-            pst.setString(3, patron);
-
-            List<Repartidor> out = new ArrayList<>();
-
-            try(ResultSet rs = pst.executeQuery()){
-
-                while (rs.next()){
-                    out.add(mapRow(rs));
-                }
-            }
-            return out;
-        }
+    // Busca 'filtro' dentro del id, nombre o vehiculo (sin distinguir mayúsculas) y devuelve
+    // como mucho 'limit' filas, las más parecidas primero. Requiere la migración
+    // db/migration/V1__busqueda_trigram.sql para no recorrer la tabla entera.
+    public List<Repartidor> search(String filtro, int limit) throws SQLException {
+        return SEARCH.search(filtro, limit, this::mapRow);
     }
 
-    private Repartidor mapRow(ResultSet rs) throws SQLException {
+    @Override
+    protected Repartidor mapRow(ResultSet rs) throws SQLException {
         return new Repartidor(
                 rs.getInt("id"),
                 rs.getString("nombre"),
@@ -0,0 +1,10 @@
+package dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/** Convierte la fila actual de un ResultSet en un objeto del modelo (el mapRow de cada DAO). */
+@FunctionalInterface
+public interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+}
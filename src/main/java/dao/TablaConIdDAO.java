@@ -0,0 +1,33 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+
+/**
+ * TablaDAO de una tabla cuya clave es una sola columna entera (id): añade el
+ * borrado por ids. Las de clave compuesta (detalle_pedido) extienden TablaDAO
+ * directamente y borran con deleteAll.
+ */
+public abstract class TablaConIdDAO<T> extends TablaDAO<T> {
+
+    private final String deleteByIdsSql;
+
+    protected TablaConIdDAO(String insertSql, String selectAllSql, String selectCambiadasSql,
+                            BulkWrite.Tabla<T> tabla) {
+        super(insertSql, selectAllSql, selectCambiadasSql, tabla);
+        if (tabla.deleteByIdsSql() == null) {
+            throw new IllegalArgumentException("La clave es compuesta: extender TablaDAO");
+        }
+        this.deleteByIdsSql = tabla.deleteByIdsSql();
+    }
+
+    /** Borra en UNA sentencia (id = ANY). Devuelve cuántas había. */
+    public int deleteAllByIds(Collection<Integer> ids) throws SQLException {
+        return BulkWrite.deleteByIds(deleteByIdsSql, ids);
+    }
+
+    public int deleteAllByIds(Collection<Integer> ids, Connection con) throws SQLException {
+        return BulkWrite.deleteByIds(deleteByIdsSql, ids, con);
+    }
+}
@@ -0,0 +1,178 @@
+package dao;
+
+import db.Db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Lo que tienen en común los DAO de una tabla: las inserciones por lotes
+ * (BatchInsert), el upsert y las escrituras en bloque (BulkWrite) y los
+ * recorridos con cursor (Cursors). Cada DAO solo aporta su SQL, sus columnas,
+ * cómo se pasa una fila a los ? del INSERT y cómo se lee una fila. Las tablas
+ * con clave de una sola columna extienden TablaConIdDAO (borrado por ids).
+ *
+ * Los métodos que reciben una Connection no hacen commit ni rollback: la
+ * transacción es del llamador (normalmente un servicio).
+ */
+public abstract class TablaDAO<T> {
+
+    private final String insertSql;
+    private final String selectAllSql;
+    private final String selectCambiadasSql;
+    private final BulkWrite.Tabla<T> tabla;
+
+    /**
+     * selectAllSql: todas las filas ordenadas por la clave.
+     * selectCambiadasSql: solo las que han cambiado desde un snapshot, con la
+     * subconsulta de RegistroCambios.clavesCambiadas (sus dos ?).
+     * tabla: las columnas, en el orden de insertSql; de ellas sale el SQL del
+     * upsert y de las escrituras en bloque.
+     */
+    protected TablaDAO(String insertSql, String selectAllSql, String selectCambiadasSql,
+                       BulkWrite.Tabla<T> tabla) {
+        this.insertSql = insertSql;
+        this.selectAllSql = selectAllSql;
+        this.selectCambiadasSql = selectCambiadasSql;
+        this.tabla = tabla;
+    }
+
+    /** Pasa los campos de una fila a los ? del INSERT, en su orden. */
+    protected abstract void bindInsert(PreparedStatement ps, T row) throws SQLException;
+
+    /** Convierte la fila actual de las consultas SELECT en un objeto del modelo. */
+    protected abstract T mapRow(ResultSet rs) throws SQLException;
+
+    // ===============================
+    // COLUMNAS
+    // ===============================
+
+    /** Nombre de la tabla en PostgreSQL. */
+    public String nombreTabla() {
+        return tabla.nombre();
+    }
+
+    /** Nombres de las columnas, en el orden del INSERT y de valores(). */
+    public List<String> columnas() {
+        return tabla.columnas().stream().map(BulkWrite.Columna::nombre).toList();
+    }
+
+    /** Nombres de las columnas de la clave primaria (las primeras de columnas()). */
+    public List<String> columnasClave() {
+        return tabla.columnasClave().stream().map(BulkWrite.Columna::nombre).toList();
+    }
+
+    /** Valores de una fila en el orden de columnas(), tal como se escriben en la BD. */
+    public Object[] valores(T row) {
+        List<BulkWrite.Columna<T>> cols = tabla.columnas();
+        Object[] valores = new Object[cols.size()];
+        for (int i = 0; i < valores.length; i++) {
+            valores[i] = cols.get(i).valor().apply(row);
+        }
+        return valores;
+    }
+
+    // ===============================
+    // INSERCIÓN POR LOTES
+    // ===============================
+
+    /** Todas en una transacción propia (ver BatchInsert). */
+    public BatchResult insertAll(Collection<T> rows) throws SQLException {
+        return insertAll(rows, BatchInsert.DEFAULT_BATCH_SIZE);
+    }
+
+    public BatchResult insertAll(Collection<T> rows, int batchSize) throws SQLException {
+        return BatchInsert.run(insertSql, rows, batchSize, this::bindInsert);
+    }
+
+    public BatchResult insertAll(Collection<T> rows, int batchSize, Connection con) throws SQLException {
+        return BatchInsert.run(insertSql, rows, batchSize, this::bindInsert, con);
+    }
+
+    // ===============================
+    // UPSERT Y ESCRITURAS EN BLOQUE
+    // ===============================
+
+    /** Inserta, o actualiza si ya existe esa clave. Sin leer antes: una sola sentencia. */
+    public int upsert(T row) throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            return upsert(row, con);
+        }
+    }
+
+    public int upsert(T row, Connection con) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(tabla.upsertSql())) {
+            bindInsert(ps, row);
+            return ps.executeUpdate();
+        }
+    }
+
+    /** Upsert de todas en UNA sentencia (arrays + unnest). Si una clave se repite, gana la última. */
+    public int upsertAll(Collection<T> rows) throws SQLException {
+        return BulkWrite.run(tabla.upsertAllSql(), rows, tabla.clave(), tabla.columnas());
+    }
+
+    /** Versión transaccional: sin commit ni rollback, eso lo decide el servicio. */
+    public int upsertAll(Collection<T> rows, Connection con) throws SQLException {
+        return BulkWrite.run(tabla.upsertAllSql(), rows, tabla.clave(), tabla.columnas(), con);
+    }
+
+    /** Actualiza en UNA sentencia las que existen; las que no, se ignoran. Devuelve cuántas. */
+    public int updateAll(Collection<T> rows) throws SQLException {
+        return BulkWrite.run(tabla.updateAllSql(), rows, tabla.clave(), tabla.columnas());
+    }
+
+    public int updateAll(Collection<T> rows, Connection con) throws SQLException {
+        return BulkWrite.run(tabla.updateAllSql(), rows, tabla.clave(), tabla.columnas(), con);
+    }
+
+    /** Borra en UNA sentencia las filas con esas claves (del resto de campos no se mira nada). */
+    public int deleteAll(Collection<T> rows) throws SQLException {
+        return BulkWrite.run(tabla.deleteAllSql(), rows, tabla.clave(), tabla.columnasClave());
+    }
+
+    public int deleteAll(Collection<T> rows, Connection con) throws SQLException {
+        return BulkWrite.run(tabla.deleteAllSql(), rows, tabla.clave(), tabla.columnasClave(), con);
+    }
+
+    // ===============================
+    // RECORRIDOS CON CURSOR
+    // ===============================
+
+    /** Todas las filas en orden de clave; con una transacción abierta (ver Cursors). */
+    public void forEach(Connection con, int fetchSize, Consumer<? super T> action) throws SQLException {
+        Cursors.forEach(con, selectAllSql, fetchSize, this::mapRow, action);
+    }
+
+    /**
+     * Solo las filas insertadas o modificadas desde el snapshot (texto de
+     * pg_current_snapshot() de una copia anterior, ver RegistroCambios).
+     */
+    public void forEachCambiadas(Connection con, int fetchSize, String snapshot, Consumer<? super T> action) throws SQLException {
+        Cursors.forEach(con, selectCambiadasSql, fetchSize, this::mapRow, action, snapshot, snapshot);
+    }
+
+    /** Como forEach, en una conexión y transacción de solo lectura propias. */
+    public void stream(Consumer<? super T> action) throws SQLException {
+        stream(Cursors.DEFAULT_FETCH_SIZE, action);
+    }
+
+    public void stream(int fetchSize, Consumer<? super T> action) throws SQLException {
+        Cursors.stream(selectAllSql, fetchSize, this::mapRow, action);
+    }
+
+    /** Stream perezoso: tiene una conexión abierta, usar en try-with-resources. */
+    public Stream<T> stream() throws SQLException {
+        return stream(Cursors.DEFAULT_FETCH_SIZE);
+    }
+
+    public Stream<T> stream(int fetchSize) throws SQLException {
+        return Cursors.stream(selectAllSql, fetchSize, this::mapRow);
+    }
+}
@@ -0,0 +1,164 @@
+package dao;
+
+import db.Db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Búsqueda por subcadena en id + dos columnas de texto (la usan ClienteDAO,
+ * ComercialDAO y RepartidorDAO).
+ *
+ * Cuenta con los índices de trigramas de db/migration/V1__busqueda_trigram.sql
+ * (ver db.SqlScripts). Dos consultas según la longitud del filtro:
+ *
+ *  - 3 o más caracteres: ordenadas por relevancia. Primero el id exacto y luego
+ *    por word_similarity (qué tanto se parece el filtro a una palabra de la
+ *    columna en la que aparece). Cada columna de texto se pide por separado con
+ *    "ORDER BY col <->> filtro LIMIT n": el índice GiST las devuelve de más a
+ *    menos parecidas (KNN) y se para a las n, así que no se puntúan todas las
+ *    coincidencias (un filtro que está en todos los emails cuesta lo mismo que
+ *    uno raro). Las coincidencias solo por id (si el filtro son cifras) van detrás. De esos 3n candidatos
+ *    como mucho salen los n mejores, con el id para desempatar.
+ *  - 1 o 2 caracteres: no hay trigramas y casi todo coincide, así que se recorre
+ *    la PK en orden de id y se para en cuanto hay 'limit' resultados.
+ *
+ * Siempre con LIMIT: nunca se devuelve la tabla entera.
+ */
+public final class TextSearch {
+
+    /** Resultados como máximo si no se pide otra cosa. */
+    public static final int DEFAULT_LIMIT = 50;
+
+    /** Longitud mínima del filtro para que se usen (y compensen) los índices de trigramas. */
+    public static final int MIN_TRIGRAM_LENGTH = 3;
+
+    private static final String WHERE = """
+            WHERE id::text LIKE ?
+               OR %2$s ILIKE ?
+               OR %3$s ILIKE ?
+            """;
+
+    // d = distancia (1 - word_similarity); el id exacto va con -1 y las coincidencias solo por id con 1
+    private static final String RANKED_SQL = """
+            WITH candidatos AS (
+                (SELECT id, -1::real AS d FROM %4$s WHERE id = ?)
+                UNION ALL
+                (SELECT id, %2$s <->> ? FROM %4$s WHERE %2$s ILIKE ? ORDER BY %2$s <->> ? LIMIT ?)
+                UNION ALL
+                (SELECT id, %3$s <->> ? FROM %4$s WHERE %3$s ILIKE ? ORDER BY %3$s <->> ? LIMIT ?)
+                UNION ALL
+                (SELECT id, 1::real FROM %4$s WHERE id::text LIKE ? ORDER BY id LIMIT ?)
+            )
+            SELECT %1$s
+            FROM %4$s
+            JOIN (SELECT id, min(d) AS d FROM candidatos GROUP BY id) c USING (id)
+            ORDER BY c.d, id
+            LIMIT ?
+            """;
+
+    private static final String SHORT_SQL = """
+            SELECT %1$s
+            FROM %4$s
+            """ + WHERE + """
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    private final String rankedSql;
+    private final String shortSql;
+
+    /** columnas: lista del SELECT; col1/col2: las columnas de texto en las que se busca. */
+    TextSearch(String tabla, String columnas, String col1, String col2) {
+        this.rankedSql = RANKED_SQL.formatted(columnas, col1, col2, tabla);
+        this.shortSql = SHORT_SQL.formatted(columnas, col1, col2, tabla);
+    }
+
+    <T> List<T> search(String filtro, int limit, RowMapper<T> mapper) throws SQLException {
+        if (limit < 1) throw new IllegalArgumentException("limit debe ser >= 1");
+        String f = filtro == null ? "" : filtro.strip();
+        if (f.isEmpty()) return new ArrayList<>();
+
+        try (Connection con = Db.getConnection();
+             PreparedStatement pst = preparar(con, "", f, limit)) {
+
+            List<T> out = new ArrayList<>();
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    out.add(mapper.map(rs));
+                }
+            }
+            return out;
+        }
+    }
+
+    /** Plan real (EXPLAIN ANALYZE) de la consulta que lanzaría search(filtro, limit), línea a línea. */
+    public List<String> plan(String filtro, int limit) throws SQLException {
+        String f = filtro == null ? "" : filtro.strip();
+        if (f.isEmpty()) return new ArrayList<>();
+
+        try (Connection con = Db.getConnection();
+             PreparedStatement pst = preparar(con, "EXPLAIN (ANALYZE, BUFFERS) ", f, limit)) {
+
+            List<String> out = new ArrayList<>();
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    out.add(rs.getString(1));
+                }
+            }
+            return out;
+        }
+    }
+
+    // La consulta que toca según la longitud del filtro, con sus parámetros ya puestos
+    private PreparedStatement preparar(Connection con, String prefijo, String f, int limit) throws SQLException {
+        String patron = "%" + escapeLike(f) + "%";
+        boolean ranked = f.length() >= MIN_TRIGRAM_LENGTH;
+
+        PreparedStatement pst = con.prepareStatement(prefijo + (ranked ? rankedSql : shortSql));
+        try {
+            int i = 1;
+            if (ranked) {
+                pst.setObject(i++, idExacto(f), Types.INTEGER);
+                for (int col = 0; col < 2; col++) {
+                    pst.setString(i++, f);
+                    pst.setString(i++, patron);
+                    pst.setString(i++, f);
+                    pst.setInt(i++, limit);
+                }
+                // Solo un filtro de cifras puede estar dentro de un id; si no, LIKE NULL
+                // y PostgreSQL se salta esa rama sin tocar el índice de id::text
+                pst.setString(i++, f.chars().allMatch(c -> c == '-' || Character.isDigit(c)) ? patron : null);
+                pst.setInt(i++, limit);
+            } else {
+                pst.setString(i++, patron);
+                pst.setString(i++, patron);
+                pst.setString(i++, patron);
+            }
+            pst.setInt(i, limit);
+            return pst;
+        } catch (SQLException e) {
+            pst.close();
+            throw e;
+        }
+    }
+
+    // El filtro como id, o null si no es un número
+    private static Integer idExacto(String f) {
+        try {
+            return Integer.valueOf(f);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // '%' y '_' del usuario se buscan literalmente (el escape por defecto de LIKE es '\')
+    static String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,22 @@
+package dao;
+
+import java.sql.SQLException;
+
+/**
+ * SQLException envuelta en una excepción no comprobada, para los sitios donde
+ * no se puede declarar throws SQLException (por ejemplo, al avanzar un Stream).
+ * Igual que java.io.UncheckedIOException, pero para JDBC.
+ */
+public class UncheckedSQLException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedSQLException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
@@ -0,0 +1,403 @@
+package db;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Pool de conexiones JDBC acotado.
+ *
+ * - Nunca hay más de maxSize conexiones físicas abiertas.
+ * - Si no hay ninguna libre, getConnection() espera como mucho acquireTimeoutMs.
+ * - Las conexiones que llevan un rato paradas se validan antes de entregarse.
+ * - Un hilo de mantenimiento cierra las ociosas (respetando minSize) y avisa
+ *   de las conexiones que se han prestado y nunca se han devuelto (fugas).
+ *
+ * Lo que se entrega al DAO es un proxy: close() no cierra el socket,
+ * devuelve la conexión física al pool para que la use el siguiente.
+ * Cada conexión física lleva además su StatementCache, de modo que
+ * prepareStatement(sql) reutiliza la sentencia ya preparada.
+ */
+public final class ConnectionPool implements DataSource, AutoCloseable {
+
+    // Si la conexión se usó hace menos de esto, no hace falta validarla con un round trip
+    private static final long VALIDATION_BYPASS_MS = 500;
+    private static final int VALIDATION_TIMEOUT_S = 5;
+
+    private final PhysicalConnectionFactory factory;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    private final long acquireTimeoutMs;
+    private final long leakThresholdMs;
+    private final int statementCacheSize;
+
+    // LIFO: las conexiones "calientes" se reutilizan y las frías caducan solas
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger total = new AtomicInteger();
+    // Sube con reciclar(): las conexiones de una generación anterior no se reutilizan
+    private final AtomicLong generacion = new AtomicLong();
+    private final ScheduledExecutorService housekeeper;
+
+    private volatile boolean closed;
+
+    /** Crea conexiones físicas nuevas (normalmente DriverManager.getConnection). */
+    @FunctionalInterface
+    public interface PhysicalConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    public ConnectionPool(PhysicalConnectionFactory factory, int minSize, int maxSize,
+                          long idleTimeoutMs, long acquireTimeoutMs, long leakThresholdMs,
+                          int statementCacheSize) {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Tamaño de pool inválido: min=" + minSize + ", max=" + maxSize);
+        }
+        this.factory = factory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long periodo = Math.max(1_000, Math.min(30_000, idleTimeoutMs / 2));
+        housekeeper.scheduleWithFixedDelay(this::mantenimiento, 0, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    // =========================================================
+    // PRÉSTAMO / DEVOLUCIÓN
+    // =========================================================
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("El pool de conexiones está cerrado");
+
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "Sin conexiones libres tras " + acquireTimeoutMs + " ms (max=" + maxSize
+                                + ", prestadas=" + borrowed.size() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrumpido esperando una conexión", e);
+        }
+
+        try {
+            PooledConnection pc = tomarValida();
+            if (pc == null) {
+                pc = crear();
+            }
+            pc.borrowedAt = System.currentTimeMillis();
+            pc.borrowTrace = leakThresholdMs > 0 ? new Throwable("Conexión prestada aquí") : null;
+            pc.leakReported = false;
+            borrowed.add(pc);
+            return pc.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Saca conexiones ociosas hasta encontrar una que siga viva
+    private PooledConnection tomarValida() {
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            if (pc.generacion == generacion.get() && esValida(pc)) return pc;
+            destruir(pc);
+        }
+        return null;
+    }
+
+    private boolean esValida(PooledConnection pc) {
+        if (System.currentTimeMillis() - pc.lastUsed < VALIDATION_BYPASS_MS) return true;
+        try {
+            return pc.physical.isValid(VALIDATION_TIMEOUT_S);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection crear() throws SQLException {
+        total.incrementAndGet();
+        try {
+            return new PooledConnection(factory.create());
+        } catch (SQLException | RuntimeException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void devolver(PooledConnection pc) {
+        borrowed.remove(pc);
+        try {
+            if (closed || pc.physical.isClosed() || pc.generacion != generacion.get()) {
+                destruir(pc);
+                return;
+            }
+            if (pc.dirty) {
+                restaurar(pc);
+            }
+            pc.physical.clearWarnings();
+            pc.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pc);
+        } catch (SQLException e) {
+            // Si no se puede dejar limpia, no se reutiliza
+            destruir(pc);
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Deja la conexión como recién creada: sin transacción abierta y con los valores por defecto
+    private void restaurar(PooledConnection pc) throws SQLException {
+        Connection c = pc.physical;
+        if (!c.getAutoCommit()) {
+            c.rollback();
+            c.setAutoCommit(true);
+        }
+        if (c.isReadOnly()) c.setReadOnly(false);
+        c.setTransactionIsolation(pc.defaultIsolation);
+        pc.dirty = false;
+    }
+
+    private void destruir(PooledConnection pc) {
+        total.decrementAndGet();
+        if (pc.statements != null) pc.statements.closeAll();
+        try {
+            pc.physical.close();
+        } catch (SQLException ignored) {
+            // ya estaba rota, no hay nada más que hacer
+        }
+    }
+
+    // =========================================================
+    // MANTENIMIENTO: ociosas, mínimo y fugas
+    // =========================================================
+
+    private void mantenimiento() {
+        if (closed) return;
+        long ahora = System.currentTimeMillis();
+
+        // 1) Cerrar las que llevan demasiado tiempo sin usarse (sin bajar de minSize)
+        for (PooledConnection pc : idle) {
+            if (total.get() <= minSize) break;
+            if (ahora - pc.lastUsed > idleTimeoutMs && idle.remove(pc)) {
+                destruir(pc);
+            }
+        }
+
+        // 2) Rellenar hasta minSize
+        while (total.get() < minSize && permits.tryAcquire()) {
+            try {
+                PooledConnection pc = crear();
+                pc.lastUsed = ahora;
+                idle.offerLast(pc);
+            } catch (SQLException e) {
+                System.err.println("[POOL] No se pudo abrir conexión: " + e.getMessage());
+                break;
+            } finally {
+                permits.release();
+            }
+        }
+
+        // 3) Avisar de conexiones prestadas hace demasiado (probable falta de close())
+        if (leakThresholdMs > 0) {
+            for (PooledConnection pc : borrowed) {
+                if (!pc.leakReported && ahora - pc.borrowedAt > leakThresholdMs) {
+                    pc.leakReported = true;
+                    System.err.println("[POOL] Posible fuga: conexión prestada hace "
+                            + (ahora - pc.borrowedAt) + " ms sin devolver");
+                    if (pc.borrowTrace != null) pc.borrowTrace.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Cierra las conexiones ociosas; las prestadas se cierran al devolverlas.
+     * Después de un cambio de esquema: las conexiones nuevas no arrastran
+     * sentencias preparadas (ni planes en el servidor) del esquema anterior.
+     */
+    public void reciclar() {
+        generacion.incrementAndGet();
+        for (PooledConnection pc : idle) {
+            if (idle.remove(pc)) destruir(pc);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            destruir(pc);
+        }
+        // Las prestadas se cierran al devolverse (devolver() comprueba 'closed')
+    }
+
+    // =========================================================
+    // ESTADÍSTICAS
+    // =========================================================
+
+    public int getMaxSize() { return maxSize; }
+    public int getTotalConnections() { return total.get(); }
+    public int getIdleConnections() { return idle.size(); }
+    public int getActiveConnections() { return borrowed.size(); }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{total=%d, activas=%d, ociosas=%d, max=%d}"
+                .formatted(getTotalConnections(), getActiveConnections(), getIdleConnections(), maxSize);
+    }
+
+    // =========================================================
+    // CONEXIÓN DEL POOL + PROXY
+    // =========================================================
+
+    private final class PooledConnection {
+        final Connection physical;
+        final int defaultIsolation;
+        final StatementCache statements;   // null si la caché está desactivada
+        final long generacion = ConnectionPool.this.generacion.get();
+        volatile long lastUsed = System.currentTimeMillis();
+        volatile long borrowedAt;
+        volatile Throwable borrowTrace;
+        volatile boolean leakReported;
+        // true si el usuario tocó autocommit/aislamiento/readOnly y hay que restaurarlos
+        volatile boolean dirty;
+
+        PooledConnection(Connection physical) throws SQLException {
+            this.physical = physical;
+            this.defaultIsolation = physical.getTransactionIsolation();
+            this.statements = statementCacheSize > 0 ? new StatementCache(physical, statementCacheSize) : null;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+    }
+
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pc;
+        private boolean returned;
+
+        Handle(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        devolver(pc);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || pc.physical.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + pc.physical + "]";
+                }
+                default -> { }
+            }
+
+            if (returned) {
+                throw new SQLException("La conexión ya se devolvió al pool");
+            }
+            if (name.equals("setAutoCommit") || name.equals("setReadOnly")
+                    || name.equals("setTransactionIsolation")) {
+                pc.dirty = true;
+            }
+            // Solo la forma simple prepareStatement(String): las variantes con
+            // claves generadas u otros flags van directas al driver
+            if (name.equals("prepareStatement") && args.length == 1 && pc.statements != null) {
+                return pc.statements.prepare((String) args[0], (Connection) proxy);
+            }
+
+            try {
+                return method.invoke(pc.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // =========================================================
+    // RESTO DE DataSource
+    // =========================================================
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("El pool usa las credenciales PG_USER/PG_PASS");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() { return null; }
+
+    @Override
+    public void setLogWriter(PrintWriter out) { }
+
+    @Override
+    public void setLoginTimeout(int seconds) { }
+
+    @Override
+    public int getLoginTimeout() { return 0; }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) return (T) this;
+        throw new SQLException("No es un wrapper de " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
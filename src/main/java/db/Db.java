@@ -1,5 +1,6 @@
 package db;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
@@ -13,18 +14,69 @@ public final class Db {
     private static final String USER = System.getenv().getOrDefault("PG_USER", "postgres");
     private static final String PASS = System.getenv().getOrDefault("PG_PASS", "adminPopo4.");
 
+    // Tamaño y tiempos del pool (mismo estilo PG_* que la conexión)
+    private static final int POOL_MIN = envInt("PG_POOL_MIN", 1);
+    private static final int POOL_MAX = envInt("PG_POOL_MAX", 10);
+    private static final long POOL_IDLE_TIMEOUT_MS = envInt("PG_POOL_IDLE_TIMEOUT_MS", 600_000);
+    private static final long POOL_ACQUIRE_TIMEOUT_MS = envInt("PG_POOL_ACQUIRE_TIMEOUT_MS", 30_000);
+    private static final long POOL_LEAK_THRESHOLD_MS = envInt("PG_POOL_LEAK_THRESHOLD_MS", 60_000);
+
+    // Sentencias preparadas que se guardan por conexión (0 = sin caché)
+    private static final int STMT_CACHE_SIZE = envInt("PG_STMT_CACHE_SIZE", 64);
+
     private static final String URL = "jdbc:postgresql://" + HOST + ":" + PORT + "/" + DB;
 
+    // Todas las llamadas de los DAO salen de aquí: se abre una vez y se reutiliza
+    private static final ConnectionPool POOL = new ConnectionPool(
+            Db::openPhysicalConnection,
+            POOL_MIN, POOL_MAX,
+            POOL_IDLE_TIMEOUT_MS, POOL_ACQUIRE_TIMEOUT_MS, POOL_LEAK_THRESHOLD_MS,
+            STMT_CACHE_SIZE);
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(POOL::close, "db-pool-shutdown"));
+    }
+
     private Db() {}
 
+    /**
+     * Conexión prestada por el pool. Hay que cerrarla (try-with-resources)
+     * para devolverla; no cierra el socket.
+     */
     public static Connection getConnection() throws SQLException {
+        return POOL.getConnection();
+    }
+
+    /** El pool como DataSource estándar, para quien lo necesite. */
+    public static DataSource getDataSource() {
+        return POOL;
+    }
+
+    public static ConnectionPool getPool() {
+        return POOL;
+    }
+
+    /** Conexión física nueva, fuera del pool (la usa el propio pool). */
+    static Connection openPhysicalConnection() throws SQLException {
         Properties p = new Properties();
         p.setProperty("user", USER);
         p.setProperty("password", PASS);
+        // Sentencia con nombre en el servidor desde la primera ejecución
+        // (por defecto el driver espera a la 5ª); la StatementCache la mantiene viva
+        if (STMT_CACHE_SIZE > 0) p.setProperty("prepareThreshold", "1");
+        // Los executeBatch() de INSERT se envían como un único INSERT multi-fila
+        p.setProperty("reWriteBatchedInserts", "true");
         return DriverManager.getConnection(URL, p );
-
-
     }
 
-
-}
\ No newline at end of file
+    private static int envInt(String name, int def) {
+        String v = System.getenv(name);
+        if (v == null || v.isBlank()) return def;
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("[DB] Valor no numérico en " + name + ": " + v + " (se usa " + def + ")");
+            return def;
+        }
+    }
+}
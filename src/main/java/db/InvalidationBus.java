@@ -0,0 +1,224 @@
+package db;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Avisa a las cachés de este proceso cuando OTRO proceso (u otro nodo) cambia
+ * una fila, para que no sirvan datos viejos.
+ *
+ * Los triggers de SqlScripts.NOTIFICAR_CAMBIOS (instalarTriggers()) mandan un
+ * NOTIFY por el canal 'cambios' con 'tabla:id1,id2,...' en cada sentencia
+ * INSERT/UPDATE/DELETE confirmada, y 'tabla:*' en un TRUNCATE o en una
+ * sentencia de más de MAX_IDS_POR_TANDA filas. Aquí un hilo hace LISTEN en una
+ * conexión propia, fuera del pool (si no, quedaría prestada para siempre), y
+ * llama a los suscriptores de esa tabla.
+ *
+ *  - Los avisos que llegan juntos se agrupan por tabla; si en una tanda hay más
+ *    de MAX_IDS_POR_TANDA ids de la misma tabla (una importación masiva), se
+ *    invalida la tabla entera en vez de id a id.
+ *  - Si se cae la conexión se pueden haber perdido avisos: al reconectar se
+ *    invalida todo lo suscrito.
+ *  - También llegan los avisos de lo que escribe este mismo proceso; invalidar
+ *    de más solo cuesta una lectura extra.
+ *
+ * Los suscriptores se llaman desde el hilo del bus: deben ser rápidos y, si
+ * tocan la interfaz, pasar por Platform.runLater.
+ */
+public final class InvalidationBus implements AutoCloseable {
+
+    public static final String CANAL = "cambios";
+
+    // Más ids que esto de una tabla en una tanda => se invalida la tabla entera
+    public static final int MAX_IDS_POR_TANDA = 1_000;
+
+    private static final int ESPERA_MS = 1_000;          // getNotifications bloquea hasta esto
+    private static final long REINTENTO_MIN_MS = 1_000;
+    private static final long REINTENTO_MAX_MS = 30_000;
+
+    /** Quién quiere enterarse de los cambios de una tabla. */
+    public record Suscripcion(String tabla, IntConsumer porId, Runnable todo) { }
+
+    private static InvalidationBus instancia;
+
+    private final List<Suscripcion> suscripciones = new CopyOnWriteArrayList<>();
+    private final AtomicLong recibidos = new AtomicLong();
+    private final AtomicLong reconexiones = new AtomicLong();
+
+    private final Thread hilo;
+    private volatile boolean cerrado;
+    private volatile Connection con;
+
+    private InvalidationBus() {
+        hilo = new Thread(this::escuchar, "invalidation-bus");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /** El bus del proceso; el hilo y su conexión se crean la primera vez. */
+    public static synchronized InvalidationBus get() {
+        if (instancia == null || instancia.cerrado) {
+            instancia = new InvalidationBus();
+        }
+        return instancia;
+    }
+
+    /** Crea (o recrea) la función y los triggers de NOTIFY. Idempotente. */
+    public static int instalarTriggers() throws SQLException, IOException {
+        return SqlScripts.ejecutar(SqlScripts.NOTIFICAR_CAMBIOS);
+    }
+
+    /**
+     * porId: se llama con cada id cambiado de esa tabla.
+     * todo:  se llama cuando no se sabe qué ids han cambiado (TRUNCATE, tanda
+     *        muy grande, reconexión).
+     */
+    public Suscripcion suscribir(String tabla, IntConsumer porId, Runnable todo) {
+        Suscripcion s = new Suscripcion(tabla, porId, todo);
+        suscripciones.add(s);
+        return s;
+    }
+
+    public void cancelar(Suscripcion s) {
+        suscripciones.remove(s);
+    }
+
+    public long getRecibidos() { return recibidos.get(); }
+
+    public long getReconexiones() { return reconexiones.get(); }
+
+    // =========================================================
+    // HILO
+    // =========================================================
+
+    private void escuchar() {
+        long espera = REINTENTO_MIN_MS;
+        boolean primera = true;
+
+        while (!cerrado) {
+            try (Connection c = Db.openPhysicalConnection()) {
+                con = c;
+                try (Statement st = c.createStatement()) {
+                    st.execute("LISTEN " + CANAL);
+                }
+                if (!primera) {
+                    reconexiones.incrementAndGet();
+                    invalidarTodo();   // lo que pasó mientras no escuchábamos
+                }
+                primera = false;
+                espera = REINTENTO_MIN_MS;
+
+                PGConnection pg = c.unwrap(PGConnection.class);
+                while (!cerrado) {
+                    PGNotification[] avisos = pg.getNotifications(ESPERA_MS);
+                    if (avisos != null && avisos.length > 0) {
+                        repartir(avisos);
+                    }
+                }
+            } catch (SQLException e) {
+                if (cerrado) break;
+                System.err.println("[InvalidationBus] Sin conexión (" + e.getMessage()
+                        + "), reintento en " + espera + " ms");
+                try {
+                    Thread.sleep(espera);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+                espera = Math.min(espera * 2, REINTENTO_MAX_MS);
+            } finally {
+                con = null;
+            }
+        }
+    }
+
+    /** Agrupa la tanda por tabla y avisa a los suscriptores. */
+    private void repartir(PGNotification[] avisos) {
+        Map<String, Set<Integer>> ids = new HashMap<>();
+        Set<String> enteras = new HashSet<>();
+
+        for (PGNotification n : avisos) {
+            if (!CANAL.equals(n.getName())) continue;
+            recibidos.incrementAndGet();
+
+            String payload = n.getParameter();
+            int sep = payload.lastIndexOf(':');
+            if (sep < 0) continue;
+            String tabla = payload.substring(0, sep);
+            String lista = payload.substring(sep + 1);
+
+            if (enteras.contains(tabla)) continue;
+            if (lista.equals("*")) {
+                enteras.add(tabla);
+                ids.remove(tabla);
+                continue;
+            }
+            try {
+                Set<Integer> deTabla = ids.computeIfAbsent(tabla, k -> new HashSet<>());
+                for (String id : lista.split(",")) {
+                    deTabla.add(Integer.parseInt(id));
+                }
+                if (deTabla.size() > MAX_IDS_POR_TANDA) {
+                    enteras.add(tabla);
+                    ids.remove(tabla);
+                }
+            } catch (NumberFormatException e) {
+                enteras.add(tabla);   // id que no es entero: mejor invalidar de más
+                ids.remove(tabla);
+            }
+        }
+
+        for (Suscripcion s : suscripciones) {
+            if (enteras.contains(s.tabla())) {
+                avisar(s.todo());
+            } else {
+                Set<Integer> deTabla = ids.get(s.tabla());
+                if (deTabla != null) {
+                    avisar(() -> deTabla.forEach(s.porId()::accept));
+                }
+            }
+        }
+    }
+
+    private void invalidarTodo() {
+        for (Suscripcion s : suscripciones) {
+            avisar(s.todo());
+        }
+    }
+
+    // Un suscriptor que falla no debe tumbar el hilo ni dejar sin aviso a los demás
+    private static void avisar(Runnable r) {
+        try {
+            r.run();
+        } catch (RuntimeException e) {
+            System.err.println("[InvalidationBus] Error en un suscriptor: " + e);
+        }
+    }
+
+    /** Para el hilo y cierra su conexión. */
+    @Override
+    public void close() {
+        cerrado = true;
+        Connection c = con;
+        if (c != null) {
+            try {
+                c.close();   // desbloquea getNotifications
+            } catch (SQLException ignored) {
+                // se está cerrando de todas formas
+            }
+        }
+        hilo.interrupt();
+    }
+}
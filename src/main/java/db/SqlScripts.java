@@ -0,0 +1,91 @@
+package db;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ejecuta scripts .sql que van dentro del jar (src/main/resources).
+ *
+ * Formato sencillo: sentencias terminadas en ';' al final de línea y comentarios
+ * de línea con '--'. Dentro de un bloque $$ ... $$ (cuerpo de una función) los
+ * ';' no cortan la sentencia; los '$$' deben ir tal cual, sin etiqueta ($body$).
+ *
+ * Cada sentencia se ejecuta en autocommit, así que los scripts deben ser
+ * idempotentes (IF NOT EXISTS) para poder relanzarlos si uno falla a medias.
+ *
+ * Al terminar se reciclan las conexiones del pool: sus sentencias preparadas
+ * son del esquema anterior (ver StatementCache).
+ */
+public final class SqlScripts {
+
+    /** Índices pg_trgm para la búsqueda por subcadena. */
+    public static final String BUSQUEDA_TRIGRAM = "db/migration/V1__busqueda_trigram.sql";
+
+    /** Triggers que avisan (NOTIFY) de los cambios, para InvalidationBus. */
+    public static final String NOTIFICAR_CAMBIOS = "db/migration/V2__notificar_cambios.sql";
+
+    /** Índices sobre las claves ajenas que recorren las consultas por cliente. */
+    public static final String INDICES_CLAVES_AJENAS = "db/migration/V3__indices_claves_ajenas.sql";
+
+    /** Registro de cambios (triggers) para las copias incrementales. */
+    public static final String REGISTRO_CAMBIOS = "db/migration/V4__registro_cambios.sql";
+
+    /** Tabla import_checkpoint para reanudar las importaciones (StreamingImporter). */
+    public static final String IMPORT_CHECKPOINT = "db/migration/V5__import_checkpoint.sql";
+
+    private SqlScripts() { }
+
+    /** Ejecuta el script del classpath y devuelve cuántas sentencias ha lanzado. */
+    public static int ejecutar(String recurso) throws SQLException, IOException {
+        List<String> sentencias = leer(recurso);
+        try (Connection con = Db.getConnection();
+             Statement st = con.createStatement()) {
+            for (String sql : sentencias) {
+                st.execute(sql);
+            }
+        } finally {
+            Db.getPool().reciclar();
+        }
+        return sentencias.size();
+    }
+
+    static List<String> leer(String recurso) throws IOException {
+        InputStream in = SqlScripts.class.getClassLoader().getResourceAsStream(recurso);
+        if (in == null) throw new IOException("No se encuentra el script " + recurso + " en el classpath");
+
+        List<String> out = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean enDolar = false;   // dentro de $$ ... $$
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = r.readLine()) != null) {
+                String l = linea.strip();
+                if (l.isEmpty() || (!enDolar && l.startsWith("--"))) continue;
+
+                actual.append(linea).append('\n');
+                // Un número impar de $$ en la línea abre o cierra el bloque
+                if (contar(l, "$$") % 2 == 1) enDolar = !enDolar;
+                if (!enDolar && l.endsWith(";")) {
+                    out.add(actual.substring(0, actual.lastIndexOf(";")).strip());
+                    actual.setLength(0);
+                }
+            }
+        }
+        if (!actual.toString().isBlank()) out.add(actual.toString().strip());
+        return out;
+    }
+
+    private static int contar(String s, String trozo) {
+        int n = 0;
+        for (int i = s.indexOf(trozo); i >= 0; i = s.indexOf(trozo, i + trozo.length())) n++;
+        return n;
+    }
+}
@@ -0,0 +1,179 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de PreparedStatement por conexión física.
+ *
+ * Los DAO hacen con.prepareStatement(SQL_CONSTANTE) en cada llamada. Con el pool
+ * la conexión física se reutiliza, así que guardamos aquí la sentencia ya preparada
+ * (LRU por texto SQL) y el close() del DAO solo la devuelve a la caché.
+ * Junto con prepareThreshold=1 en el driver, PostgreSQL mantiene una sentencia
+ * con nombre en el servidor y no vuelve a parsear ni planificar.
+ *
+ * Al devolverla se cierra el ResultSet que el DAO haya dejado abierto: si no,
+ * el siguiente uso heredaría un cursor vivo (y su portal en el servidor).
+ *
+ * Tras un cambio de esquema (SqlScripts) los planes guardados pueden dejar de
+ * valer ("cached plan must not change result type"): ConnectionPool.reciclar()
+ * cierra las conexiones físicas, y con ellas esta caché y sus sentencias.
+ *
+ * Los contadores son globales (todas las conexiones del pool).
+ */
+public final class StatementCache {
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong EVICTIONS = new AtomicLong();
+
+    private final Connection physical;
+    private final int maxSize;
+
+    // Orden de acceso: la primera entrada es la menos usada recientemente
+    private final LinkedHashMap<String, PreparedStatement> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection physical, int maxSize) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Devuelve una sentencia preparada para 'sql'. Mientras está en uso se saca de
+     * la caché, así dos usos anidados del mismo SQL no comparten objeto.
+     */
+    synchronized PreparedStatement prepare(String sql, Connection owner) throws SQLException {
+        PreparedStatement ps = cache.remove(sql);
+        if (ps != null && !ps.isClosed()) {
+            HITS.incrementAndGet();
+        } else {
+            MISSES.incrementAndGet();
+            ps = physical.prepareStatement(sql);
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new Handle(sql, ps, owner));
+    }
+
+    private synchronized void devolver(String sql, PreparedStatement ps) {
+        try {
+            if (ps.isClosed()) return;
+            // Limpiamos lo que el DAO haya podido tocar para el siguiente uso
+            ResultSet rs = ps.getResultSet();
+            if (rs != null) rs.close();
+            ps.clearParameters();
+            ps.clearBatch();
+            if (ps.getFetchSize() != 0) ps.setFetchSize(0);
+            if (ps.getMaxRows() != 0) ps.setMaxRows(0);
+            if (ps.getQueryTimeout() != 0) ps.setQueryTimeout(0);
+        } catch (SQLException e) {
+            cerrar(ps);
+            return;
+        }
+
+        PreparedStatement anterior = cache.put(sql, ps);
+        if (anterior != null && anterior != ps) cerrar(anterior);
+
+        Iterator<Map.Entry<String, PreparedStatement>> it = cache.entrySet().iterator();
+        while (cache.size() > maxSize && it.hasNext()) {
+            PreparedStatement viejo = it.next().getValue();
+            it.remove();
+            cerrar(viejo);
+            EVICTIONS.incrementAndGet();
+        }
+    }
+
+    synchronized void closeAll() {
+        cache.values().forEach(StatementCache::cerrar);
+        cache.clear();
+    }
+
+    private static void cerrar(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException ignored) {
+            // la conexión puede estar ya rota
+        }
+    }
+
+    // =========================================================
+    // ESTADÍSTICAS
+    // =========================================================
+
+    public static long getHits() { return HITS.get(); }
+    public static long getMisses() { return MISSES.get(); }
+    public static long getEvictions() { return EVICTIONS.get(); }
+
+    public static double getHitRatio() {
+        long h = HITS.get(), m = MISSES.get();
+        return (h + m) == 0 ? 0.0 : (double) h / (h + m);
+    }
+
+    public static String stats() {
+        return "StatementCache{hits=%d, misses=%d, evictions=%d, ratio=%.2f}"
+                .formatted(getHits(), getMisses(), getEvictions(), getHitRatio());
+    }
+
+    // =========================================================
+    // PROXY: close() devuelve a la caché
+    // =========================================================
+
+    private final class Handle implements InvocationHandler {
+        private final String sql;
+        private final PreparedStatement ps;
+        private final Connection owner;
+        private boolean returned;
+
+        Handle(String sql, PreparedStatement ps, Connection owner) {
+            this.sql = sql;
+            this.ps = ps;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        devolver(sql, ps);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || ps.isClosed();
+                }
+                case "getConnection" -> {
+                    return owner;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> { }
+            }
+
+            if (returned) {
+                throw new SQLException("La sentencia ya está cerrada");
+            }
+            try {
+                return method.invoke(ps, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vista "360" de un cliente: el cliente con su detalle y sus pedidos (cada
+ * uno con sus líneas) y los envíos de esos pedidos.
+ *
+ * El detalle y los pedidos van dentro del propio Cliente (getDetalle,
+ * getPedidos); cada Envio apunta al mismo objeto Pedido que está en
+ * cliente.getPedidos(), con sus líneas.
+ *
+ * IMPORTANTE:
+ * - Constructor vacío + getters/setters: se rellena con Jackson.
+ */
+public class ClienteCompleto {
+
+    private Cliente cliente;
+    private List<Envio> envios = new ArrayList<>();
+
+    public ClienteCompleto() { }
+
+    public Cliente getCliente() { return cliente; }
+    public void setCliente(Cliente cliente) { this.cliente = cliente; }
+
+    public List<Envio> getEnvios() { return envios; }
+    public void setEnvios(List<Envio> envios) { this.envios = envios; }
+
+    @Override public String toString() {
+        return "ClienteCompleto{cliente=%s, pedidos=%d, envios=%d}"
+                .formatted(cliente, cliente == null ? 0 : cliente.getPedidos().size(), envios.size());
+    }
+}
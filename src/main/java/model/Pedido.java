@@ -16,6 +16,7 @@ public class Pedido {
     // N:M mediante filas en la tabla detalle_pedido
     private List<DetallePedido> lineas = new ArrayList<>();
 
+    public Pedido() {}   // para Jackson
     public Pedido(int pedidoId, int clienteId) {
         this.id = pedidoId;
         this.clienteId = clienteId;
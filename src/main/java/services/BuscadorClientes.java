@@ -0,0 +1,159 @@
+package services;
+
+import dao.ClienteDAO;
+import dao.TextSearch;
+import model.Cliente;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Búsqueda de clientes en la BD pensada para "buscar mientras se escribe".
+ * Envuelve ClienteDAO.search con dos ahorros:
+ *
+ *  1) Caché LRU de resultados por filtro (normalizado: sin espacios a los lados
+ *     y en minúsculas). Además, si hay en caché un resultado COMPLETO para un
+ *     prefijo del filtro (menos filas que el límite, o sea, no lo ha cortado el
+ *     LIMIT), el resultado del filtro largo es un subconjunto suyo y se saca
+ *     filtrando en memoria: escribir "ga" después de "g" no va a la BD.
+ *     Solo entre filtros cortos (menos de TextSearch.MIN_TRIGRAM_LENGTH), que
+ *     la BD devuelve por id: a partir de 3 caracteres el orden es por parecido
+ *     con el filtro exacto, y el del prefijo no vale ("garcia" no se ordena
+ *     como "gar"), así que se consulta.
+ *
+ *  2) Agrupación de peticiones iguales: si ya hay una consulta en vuelo para el
+ *     mismo filtro, las demás esperan a esa en lugar de lanzar otra.
+ *
+ * El filtrado en memoria usa contains() sobre id, nombre y email, igual que el
+ * ILIKE '%...%' de la consulta. Después de modificar clientes hay que llamar a
+ * invalidar().
+ */
+public class BuscadorClientes {
+
+    public static final int DEFAULT_CACHE_SIZE = 64;
+
+    private final ClienteDAO dao;
+    private final int limit;
+    private final LruCache<String, List<Cliente>> cache;
+    private final Map<String, CompletableFuture<List<Cliente>>> enVuelo = new ConcurrentHashMap<>();
+
+    private final AtomicLong consultas = new AtomicLong();
+    private final AtomicLong aciertos = new AtomicLong();
+
+    public BuscadorClientes(ClienteDAO dao) {
+        this(dao, TextSearch.DEFAULT_LIMIT, DEFAULT_CACHE_SIZE);
+    }
+
+    public BuscadorClientes(ClienteDAO dao, int limit, int cacheSize) {
+        this.dao = dao;
+        this.limit = limit;
+        this.cache = new LruCache<>(cacheSize);
+    }
+
+    /**
+     * Resultado sin ir a la BD (caché exacta o prefijo completo), o null si hace
+     * falta consultar. Es rápido: se puede llamar en el hilo de JavaFX.
+     */
+    public List<Cliente> enCache(String filtro) {
+        String f = normalizar(filtro);
+        List<Cliente> exacto = cache.get(f);
+        if (exacto != null) {
+            aciertos.incrementAndGet();
+            return exacto;
+        }
+
+        if (!ordenPorId(f)) {
+            return null;
+        }
+        for (int i = f.length() - 1; i > 0; i--) {
+            List<Cliente> previo = cache.get(f.substring(0, i));
+            if (previo != null && previo.size() < limit) {
+                List<Cliente> filtrado = filtrar(previo, f);
+                cache.put(f, filtrado);
+                aciertos.incrementAndGet();
+                return filtrado;
+            }
+        }
+        return null;
+    }
+
+    /** Busca (de la caché si se puede). Bloquea: llamarlo en segundo plano. */
+    public List<Cliente> buscar(String filtro) throws SQLException {
+        String f = normalizar(filtro);
+        List<Cliente> hecho = enCache(f);
+        if (hecho != null) return hecho;
+
+        CompletableFuture<List<Cliente>> nuevo = new CompletableFuture<>();
+        CompletableFuture<List<Cliente>> otro = enVuelo.putIfAbsent(f, nuevo);
+        if (otro != null) {
+            return esperar(otro);   // alguien ya está consultando lo mismo
+        }
+
+        try {
+            consultas.incrementAndGet();
+            List<Cliente> r = dao.search(f, limit);
+            cache.put(f, r);
+            nuevo.complete(r);
+            return r;
+        } catch (SQLException | RuntimeException e) {
+            nuevo.completeExceptionally(e);
+            throw e;
+        } finally {
+            enVuelo.remove(f, nuevo);
+        }
+    }
+
+    /** Olvida todos los resultados (p. ej. después de insertar o actualizar un cliente). */
+    public void invalidar() {
+        cache.clear();
+    }
+
+    /** Consultas que han llegado a la BD. */
+    public long getConsultas() { return consultas.get(); }
+
+    /** Búsquedas resueltas con la caché (exacta o por prefijo). */
+    public long getAciertos() { return aciertos.get(); }
+
+    private static List<Cliente> esperar(CompletableFuture<List<Cliente>> f) throws SQLException {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException s) throw s;
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            throw e;
+        }
+    }
+
+    // Filtros que ClienteDAO.search devuelve en orden de id (sin ranking)
+    private static boolean ordenPorId(String f) {
+        return f.length() < TextSearch.MIN_TRIGRAM_LENGTH;
+    }
+
+    // El subconjunto sale en el orden de 'lista', que es el de id (ver ordenPorId)
+    private static List<Cliente> filtrar(List<Cliente> lista, String f) {
+        List<Cliente> out = new ArrayList<>();
+        for (Cliente c : lista) {
+            if (String.valueOf(c.getId()).contains(f)
+                    || contiene(c.getNombre(), f)
+                    || contiene(c.getEmail(), f)) {
+                out.add(c);
+            }
+        }
+        return out;
+    }
+
+    private static boolean contiene(String campo, String f) {
+        return campo != null && campo.toLowerCase(Locale.ROOT).contains(f);
+    }
+
+    private static String normalizar(String filtro) {
+        return filtro == null ? "" : filtro.strip().toLowerCase(Locale.ROOT);
+    }
+}
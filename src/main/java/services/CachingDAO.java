@@ -0,0 +1,120 @@
+package services;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Caché de lectura delante de un DAO de tabla pequeña y casi fija (productos,
+ * comerciales, repartidores): findById responde de memoria tras la primera
+ * lectura. Tope de tamaño (LRU) y TTL, ver ReadThroughCache.
+ *
+ * No depende de ningún DAO concreto: recibe su findById, su findAll y cómo
+ * sacar el id de una fila.
+ *
+ *   ProductoDAO dao = new ProductoDAO();
+ *   CachingDAO<Producto> productos =
+ *           new CachingDAO<>(dao::findById, dao::findAll, Producto::getId);
+ *
+ * Las escrituras se hacen con el DAO, pero a través de escribir()/borrar() para
+ * que se invaliden los ids que tocan. Si se escribe la tabla por otro camino
+ * (importación JSON, COPY, otro proceso) hay que llamar a invalidarTodo(),
+ * suscribir la caché a db.InvalidationBus o esperar a que caduque el TTL.
+ */
+public class CachingDAO<T> {
+
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+
+    /** Escritura sin resultado (p. ej. insert). */
+    @FunctionalInterface
+    public interface Escritura {
+        void ejecutar() throws SQLException;
+    }
+
+    /** Escritura que devuelve algo (filas afectadas, BatchResult...). */
+    @FunctionalInterface
+    public interface EscrituraCon<R> {
+        R ejecutar() throws SQLException;
+    }
+
+    private final ReadThroughCache.BulkLoader<List<T>> findAll;
+    private final Function<? super T, Integer> id;
+    private final ReadThroughCache<Integer, T> cache;
+
+    public CachingDAO(ReadThroughCache.Loader<Integer, T> findById,
+                      ReadThroughCache.BulkLoader<List<T>> findAll,
+                      Function<? super T, Integer> id) {
+        this(findById, findAll, id, DEFAULT_MAX_SIZE, DEFAULT_TTL);
+    }
+
+    public CachingDAO(ReadThroughCache.Loader<Integer, T> findById,
+                      ReadThroughCache.BulkLoader<List<T>> findAll,
+                      Function<? super T, Integer> id,
+                      int maxSize, Duration ttl) {
+        this.findAll = findAll;
+        this.id = id;
+        this.cache = new ReadThroughCache<>(maxSize, ttl, findById);
+    }
+
+    public T findById(int id) throws SQLException {
+        return cache.get(id);
+    }
+
+    /** Lee la tabla entera (como siempre) y de paso llena la caché. */
+    public List<T> findAll() throws SQLException {
+        return cache.precargar(findAll, id);
+    }
+
+    /** Carga toda la tabla en la caché de una vez. Devuelve cuántas filas. */
+    public int precargar() throws SQLException {
+        return findAll().size();
+    }
+
+    // ===============================
+    // ESCRITURAS: invalidan
+    // ===============================
+
+    /** Ejecuta una escritura de esa fila y la saca de la caché (también si falla). */
+    public void escribir(T fila, Escritura escritura) throws SQLException {
+        try {
+            escritura.ejecutar();
+        } finally {
+            cache.invalidar(id.apply(fila));
+        }
+    }
+
+    /** Igual para una escritura por lotes (insertAll, upsertAll, updateAll...). */
+    public <R> R escribir(Collection<? extends T> filas, EscrituraCon<R> escritura) throws SQLException {
+        try {
+            return escritura.ejecutar();
+        } finally {
+            for (T fila : filas) {
+                cache.invalidar(id.apply(fila));
+            }
+        }
+    }
+
+    /** Para deleteAllByIds: se invalidan los ids borrados. */
+    public <R> R borrar(Collection<Integer> ids, EscrituraCon<R> escritura) throws SQLException {
+        try {
+            return escritura.ejecutar();
+        } finally {
+            ids.forEach(cache::invalidar);
+        }
+    }
+
+    public void invalidar(int id) {
+        cache.invalidar(id);
+    }
+
+    public void invalidarTodo() {
+        cache.invalidarTodo();
+    }
+
+    public ReadThroughCache<Integer, T> getCache() {
+        return cache;
+    }
+}
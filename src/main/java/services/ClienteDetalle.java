@@ -4,16 +4,75 @@ import dao.ClienteDAO;
 import dao.DetalleClienteDAO;
 import db.Db;
 import model.Cliente;
+import model.ClienteCompleto;
 import model.DetalleCliente;
+import model.Envio;
+import model.Pedido;
 
+import java.io.IOException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class ClienteDetalle {
 
     private final ClienteDAO clienteDAO = new ClienteDAO();
     private final DetalleClienteDAO detalleClienteDAO = new DetalleClienteDAO();
 
+    /**
+     * El cliente entero en una sola consulta: PostgreSQL monta el JSON
+     * (json_build_object / json_agg) con los nombres de propiedad de las clases
+     * del modelo, y Jackson lo convierte directamente en un ClienteCompleto.
+     *
+     * Cada LATERAL lee solo las filas de este cliente, sin los findAll()
+     * filtrados en Java ni una consulta por pedido; con los índices de
+     * SqlScripts.INDICES_CLAVES_AJENAS cada una es una búsqueda por índice.
+     * Si el cliente no existe no sale ninguna fila.
+     */
+    private static final String SELECT_COMPLETO_SQL = """
+            SELECT json_build_object(
+              'cliente', json_build_object(
+                'id', c.id, 'nombre', c.nombre, 'email', c.email,
+                'detalle', (SELECT json_build_object('id', dc.id, 'direccion', dc.direccion,
+                                                     'telefono', dc.telefono, 'notas', dc.notas)
+                            FROM detalle_cliente dc WHERE dc.id = c.id),
+                'pedidos', COALESCE(ped.pedidos, '[]'::json)),
+              'envios', COALESCE(env.envios, '[]'::json))
+            FROM cliente c
+            LEFT JOIN LATERAL (
+              SELECT json_agg(json_build_object(
+                       'id', p.id, 'clienteId', p.cliente_id, 'fecha', p.fecha,
+                       'lineas', COALESCE(l.lineas, '[]'::json)) ORDER BY p.id) AS pedidos
+              FROM pedido p
+              LEFT JOIN LATERAL (
+                SELECT json_agg(json_build_object(
+                         'pedidoId', d.pedido_id, 'productoId', d.producto_id,
+                         'cantidad', d.cantidad, 'precioUnit', d.precio_unit) ORDER BY d.producto_id) AS lineas
+                FROM detalle_pedido d
+                WHERE d.pedido_id = p.id
+              ) l ON true
+              WHERE p.cliente_id = c.id
+            ) ped ON true
+            LEFT JOIN LATERAL (
+              SELECT json_agg(json_build_object(
+                       'id', e.id,
+                       'pedido', json_build_object('id', p.id, 'clienteId', p.cliente_id, 'fecha', p.fecha),
+                       'comercial', json_build_object('id', co.id, 'nombre', co.nombre, 'zonaventas', co.zonaventas),
+                       'repartidor', json_build_object('id', r.id, 'nombre', r.nombre, 'vehiculo', r.vehiculo))
+                     ORDER BY e.id) AS envios
+              FROM pedido p
+              JOIN envio e ON e.pedido_id = p.id
+              JOIN comercial co ON co.id = e.comercial_id
+              JOIN repartidor r ON r.id = e.repartidor_id
+              WHERE p.cliente_id = c.id
+            ) env ON true
+            WHERE c.id = ?
+            """;
+
     /**
      * Guarda un cliente y su detalle en una única transacción.
      * Si algo falla, se hace rollback y no se inserta nada.
@@ -38,5 +97,84 @@ public class ClienteDetalle {
         }
     }
 
+    /**
+     * Actualiza (o crea si no existen) un cliente y su detalle en una única
+     * transacción: un INSERT ... ON CONFLICT DO UPDATE por tabla.
+     */
+    public void actualizarClienteCompleto(Cliente c, DetalleCliente d) throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
+
+            try {
+                clienteDAO.upsert(c, con);
+                detalleClienteDAO.upsert(d, con);
+
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Borra el detalle y después el cliente, en una única transacción.
+     * Devuelve los clientes borrados (0 si no existía). Si el cliente tiene
+     * pedidos, la FK lo impide: SQLException y no se borra nada.
+     */
+    public int borrarClienteCompleto(int id) throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
 
-}
\ No newline at end of file
+            try {
+                detalleClienteDAO.deleteAllByIds(List.of(id), con);
+                int n = clienteDAO.deleteAllByIds(List.of(id), con);
+
+                con.commit();
+                return n;
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Cliente con detalle, pedidos (con líneas) y envíos, en un solo viaje a la BD.
+     * Devuelve null si el cliente no existe.
+     */
+    public ClienteCompleto cargarClienteCompleto(int id) throws SQLException {
+        String json;
+        try (Connection con = Db.getConnection();
+             PreparedStatement ps = con.prepareStatement(SELECT_COMPLETO_SQL)) {
+
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                json = rs.getString(1);
+            }
+        }
+
+        ClienteCompleto cc;
+        try {
+            cc = JsonIO.fromJson(json, ClienteCompleto.class);
+        } catch (IOException e) {
+            throw new SQLException("JSON inesperado al cargar el cliente " + id, e);
+        }
+
+        // Que cada envío apunte al pedido completo (con líneas) del cliente
+        Map<Integer, Pedido> pedidos = new HashMap<>();
+        for (Pedido p : cc.getCliente().getPedidos()) {
+            pedidos.put(p.getId(), p);
+        }
+        for (Envio e : cc.getEnvios()) {
+            Pedido p = pedidos.get(e.getPedido().getId());
+            if (p != null) e.setPedido(p);
+        }
+        return cc;
+    }
+}
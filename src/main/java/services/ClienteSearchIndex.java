@@ -0,0 +1,226 @@
+package services;
+
+import model.Cliente;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice de trigramas en memoria para buscar clientes por subcadena de
+ * id, nombre o email (sin distinguir mayúsculas), como ClienteDAO.search
+ * pero sin ir a la BD.
+ *
+ * Cómo funciona:
+ *  - Cada cliente ocupa una posición ("slot") y su texto de búsqueda es
+ *    "id\nnombre\nemail" en minúsculas.
+ *  - Para cada trigrama (3 caracteres seguidos) del texto se guarda un BitSet
+ *    con los slots que lo contienen.
+ *  - Para buscar "garc" se cruzan (AND) los BitSet de "gar" y "arc", empezando
+ *    por el más pequeño, y solo se comprueba con contains() a esos candidatos.
+ *  - Con filtros de 1 o 2 caracteres no hay trigramas: se recorren los textos
+ *    ya en minúsculas, que sigue siendo rápido.
+ *
+ * Se construye una vez con reconstruir() (o con guardar() fila a fila desde un
+ * cursor, sin tener la lista entera) y luego se mantiene con guardar(),
+ * eliminar() y actualizar(). Los resultados salen en el orden en que se añadieron (el de la
+ * carga, por id) y los clientes nuevos al final. Es seguro usarlo desde varios
+ * hilos: las búsquedas se hacen en paralelo y las modificaciones en exclusiva.
+ */
+public class ClienteSearchIndex {
+
+    private static final int N = 3;
+
+    // slot -> cliente / texto de búsqueda; null si se eliminó
+    private final List<Cliente> clientes = new ArrayList<>();
+    private final List<String> textos = new ArrayList<>();
+
+    private final Map<Integer, Integer> slotPorId = new HashMap<>();
+    private final Map<String, BitSet> trigramas = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ClienteSearchIndex() { }
+
+    public ClienteSearchIndex(Collection<Cliente> clientes) {
+        reconstruir(clientes);
+    }
+
+    /** Vacía el índice y lo vuelve a llenar con la lista (normalmente findAll()). */
+    public void reconstruir(Collection<Cliente> lista) {
+        lock.writeLock().lock();
+        try {
+            clientes.clear();
+            textos.clear();
+            slotPorId.clear();
+            trigramas.clear();
+            for (Cliente c : lista) {
+                guardarSinLock(c);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Añade el cliente o, si ya hay uno con ese id, lo sustituye. */
+    public void guardar(Cliente c) {
+        lock.writeLock().lock();
+        try {
+            guardarSinLock(c);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Quita el cliente con ese id. Devuelve false si no estaba. */
+    public boolean eliminar(int id) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotPorId.remove(id);
+            if (slot == null) return false;
+            vaciarSlot(slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Aplica de una vez lo leído de la BD para unos ids que han cambiado: los que
+     * vienen en 'actuales' se guardan y el resto de 'ids' (ya no existen) se quitan.
+     */
+    public void actualizar(Collection<Integer> ids, Collection<Cliente> actuales) {
+        lock.writeLock().lock();
+        try {
+            Set<Integer> borrados = new HashSet<>(ids);
+            for (Cliente c : actuales) {
+                borrados.remove(c.getId());
+                guardarSinLock(c);
+            }
+            for (Integer id : borrados) {
+                Integer slot = slotPorId.remove(id);
+                if (slot != null) vaciarSlot(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotPorId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Todos los clientes del índice, en su orden. */
+    public List<Cliente> todos() {
+        return buscar("", Integer.MAX_VALUE);
+    }
+
+    public List<Cliente> buscar(String filtro) {
+        return buscar(filtro, Integer.MAX_VALUE);
+    }
+
+    /** Clientes cuyo id, nombre o email contiene 'filtro'; como mucho 'limit'. Filtro vacío = todos. */
+    public List<Cliente> buscar(String filtro, int limit) {
+        String f = normalizar(filtro == null ? "" : filtro.strip());
+        List<Cliente> out = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            if (f.length() < N) {
+                // Sin trigramas: recorrido directo (filtro vacío => todos)
+                for (int slot = 0; slot < textos.size() && out.size() < limit; slot++) {
+                    String t = textos.get(slot);
+                    if (t != null && t.contains(f)) out.add(clientes.get(slot));
+                }
+                return out;
+            }
+
+            BitSet candidatos = candidatos(f);
+            for (int slot = candidatos.nextSetBit(0); slot >= 0 && out.size() < limit;
+                 slot = candidatos.nextSetBit(slot + 1)) {
+                // Tener todos los trigramas no garantiza la subcadena: se comprueba
+                if (textos.get(slot).contains(f)) out.add(clientes.get(slot));
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // =========================================================
+    // INTERNOS (llamar con el lock cogido)
+    // =========================================================
+
+    private void guardarSinLock(Cliente c) {
+        Integer anterior = slotPorId.get(c.getId());
+        if (anterior != null) vaciarSlot(anterior);
+
+        int slot = clientes.size();
+        String texto = textoDe(c);
+        clientes.add(c);
+        textos.add(texto);
+        slotPorId.put(c.getId(), slot);
+
+        for (int i = 0; i + N <= texto.length(); i++) {
+            trigramas.computeIfAbsent(texto.substring(i, i + N), k -> new BitSet()).set(slot);
+        }
+    }
+
+    // El slot no se reutiliza (así se conserva el orden); reconstruir() compacta
+    private void vaciarSlot(int slot) {
+        String texto = textos.get(slot);
+        for (int i = 0; i + N <= texto.length(); i++) {
+            String tri = texto.substring(i, i + N);
+            BitSet bs = trigramas.get(tri);
+            if (bs != null) {
+                bs.clear(slot);
+                if (bs.isEmpty()) trigramas.remove(tri);
+            }
+        }
+        clientes.set(slot, null);
+        textos.set(slot, null);
+    }
+
+    /** AND de los BitSet de los trigramas del filtro, del más selectivo al menos. */
+    private BitSet candidatos(String f) {
+        List<BitSet> listas = new ArrayList<>();
+        for (int i = 0; i + N <= f.length(); i++) {
+            BitSet bs = trigramas.get(f.substring(i, i + N));
+            if (bs == null) return new BitSet();   // un trigrama que no aparece nunca: sin resultados
+            listas.add(bs);
+        }
+        listas.sort((a, b) -> Integer.compare(a.cardinality(), b.cardinality()));
+
+        BitSet out = (BitSet) listas.get(0).clone();
+        for (int i = 1; i < listas.size() && !out.isEmpty(); i++) {
+            out.and(listas.get(i));
+        }
+        return out;
+    }
+
+    // '\n' separa los campos para que una búsqueda no case a caballo entre dos
+    private static String textoDe(Cliente c) {
+        return normalizar(c.getId() + "\n" + nulo(c.getNombre()) + "\n" + nulo(c.getEmail()));
+    }
+
+    private static String nulo(String s) {
+        return s == null ? "" : s;
+    }
+
+    private static String normalizar(String s) {
+        return s.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,178 @@
+package services;
+
+import db.Db;
+import model.AppData;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Carga masiva de un AppData con COPY ... FROM STDIN (CopyManager del driver).
+ *
+ * En vez de un INSERT por fila (y una conexión por fila), cada tabla se envía
+ * como un flujo CSV continuo. Todas las tablas van en UNA transacción y en
+ * orden de FKs (ver SnapshotTable), así que o entra todo o no entra nada.
+ *
+ * Modos:
+ *  - INSERT: COPY directo a la tabla. Falla si algún id ya existe.
+ *  - UPSERT: COPY a una tabla temporal (staging) y después
+ *            INSERT ... SELECT ... ON CONFLICT DO UPDATE sobre la real.
+ *            Si una clave se repite gana la última fila, como en upsertAll.
+ */
+public class CopyImporter {
+
+    public enum Mode { INSERT, UPSERT }
+
+    /** Filas cargadas y tiempo empleado en una tabla. */
+    public record TableStats(String tabla, long filas, long millis) {
+        public double filasPorSegundo() {
+            return millis == 0 ? filas * 1000.0 : filas * 1000.0 / millis;
+        }
+
+        @Override
+        public String toString() {
+            return "%-15s %9d filas %7d ms %12.0f filas/s".formatted(tabla, filas, millis, filasPorSegundo());
+        }
+    }
+
+    // Tamaño del trozo que se manda al servidor en cada writeToCopy
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    // Columna extra del staging con el orden de llegada de cada fila
+    private static final String ORDEN = "_orden";
+
+    /** Importa el AppData completo y devuelve las estadísticas por tabla. */
+    public List<TableStats> importar(AppData data, Mode mode) throws SQLException {
+        List<TableStats> stats = new ArrayList<>();
+
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
+
+            try {
+                CopyManager copy = con.unwrap(PGConnection.class).getCopyAPI();
+
+                for (SnapshotTable t : SnapshotTable.values()) {
+                    long t0 = System.nanoTime();
+                    long filas = (mode == Mode.UPSERT)
+                            ? cargarConStaging(con, copy, t, t.rows(data))
+                            : copiar(copy, t.table(), t, t.rows(data));
+                    stats.add(new TableStats(t.table(), filas, (System.nanoTime() - t0) / 1_000_000));
+                }
+
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+        return stats;
+    }
+
+    // =========================================================
+    // COPY
+    // =========================================================
+
+    /** Envía las filas como CSV a 'destino' y devuelve cuántas aceptó el servidor. */
+    private long copiar(CopyManager copy, String destino, SnapshotTable t, List<?> rows) throws SQLException {
+        if (rows.isEmpty()) return 0;
+
+        String sql = "COPY " + destino + " (" + String.join(", ", t.columns()) + ") FROM STDIN WITH (FORMAT csv)";
+        CopyIn in = copy.copyIn(sql);
+        try {
+            StringBuilder sb = new StringBuilder(BUFFER_BYTES + 1024);
+            for (Object row : rows) {
+                appendCsv(sb, t.values(row));
+                if (sb.length() >= BUFFER_BYTES) {
+                    enviar(in, sb);
+                }
+            }
+            if (sb.length() > 0) enviar(in, sb);
+            return in.endCopy();
+        } finally {
+            if (in.isActive()) in.cancelCopy();
+        }
+    }
+
+    private static void enviar(CopyIn in, StringBuilder sb) throws SQLException {
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        in.writeToCopy(bytes, 0, bytes.length);
+        sb.setLength(0);
+    }
+
+    /**
+     * Una línea CSV. NULL es un campo vacío sin comillas; los textos van siempre
+     * entre comillas (así "" es cadena vacía y no NULL).
+     */
+    static void appendCsv(StringBuilder sb, Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append(',');
+            Object v = values[i];
+            if (v == null) continue;
+            if (v instanceof Number) {
+                sb.append(v);
+            } else {
+                String s = v.toString();
+                sb.append('"');
+                for (int k = 0; k < s.length(); k++) {
+                    char ch = s.charAt(k);
+                    if (ch == '"') sb.append('"');
+                    sb.append(ch);
+                }
+                sb.append('"');
+            }
+        }
+        sb.append('\n');
+    }
+
+    // =========================================================
+    // STAGING + MERGE (upsert)
+    // =========================================================
+
+    private long cargarConStaging(Connection con, CopyManager copy, SnapshotTable t, List<?> rows) throws SQLException {
+        if (rows.isEmpty()) return 0;
+
+        String staging = "stg_" + t.table();
+        try (Statement st = con.createStatement()) {
+            st.execute("CREATE TEMP TABLE " + staging + " (LIKE " + t.table() + " INCLUDING DEFAULTS, "
+                    + ORDEN + " bigint GENERATED ALWAYS AS IDENTITY) ON COMMIT DROP");
+        }
+
+        // El COPY no trae ORDEN: la identidad numera las filas en el orden del fichero
+        copiar(copy, staging, t, rows);
+
+        try (Statement st = con.createStatement()) {
+            return st.executeUpdate(mergeSql(t, staging));
+        }
+    }
+
+    /**
+     * INSERT ... SELECT DISTINCT ON (pk) ... ORDER BY pk, orden DESC ON CONFLICT (pk) DO UPDATE.
+     * DISTINCT ON evita el error "cannot affect row a second time" si el
+     * fichero trae la misma clave dos veces, y el ORDER BY hace que se quede la
+     * última (lo mismo que BulkWrite.sinRepetidas en upsertAll).
+     */
+    static String mergeSql(SnapshotTable t, String staging) {
+        String cols = String.join(", ", t.columns());
+        String pk = String.join(", ", t.keyColumns());
+
+        List<String> sets = new ArrayList<>();
+        for (String c : t.columns()) {
+            if (!t.keyColumns().contains(c)) sets.add(c + " = EXCLUDED." + c);
+        }
+        String accion = sets.isEmpty() ? "DO NOTHING" : "DO UPDATE SET " + String.join(", ", sets);
+
+        return "INSERT INTO " + t.table() + " (" + cols + ") "
+                + "SELECT DISTINCT ON (" + pk + ") " + cols + " FROM " + staging + " "
+                + "ORDER BY " + pk + ", " + ORDEN + " DESC "
+                + "ON CONFLICT (" + pk + ") " + accion;
+    }
+}
@@ -0,0 +1,91 @@
+package services;
+
+import dao.DetalleClienteDAO;
+import model.DetalleCliente;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Detalles de cliente cargados bajo demanda, con un tope de memoria.
+ *
+ * En vez de traer todos los detalles al abrir la vista, se piden cuando hacen
+ * falta: el del cliente seleccionado (get) o los de un grupo de filas visibles
+ * de una vez (precargar, una sola consulta con findByIds). Se guardan en una
+ * LruCache; también se recuerda que un cliente NO tiene detalle, para no
+ * volver a preguntarlo.
+ *
+ * get() y precargar() consultan la BD (llamarlos en segundo plano); enCache()
+ * y estaEnCache() no, se pueden usar al pintar la tabla.
+ */
+public class DetalleClienteCache {
+
+    public static final int DEFAULT_CAPACIDAD = 5_000;
+
+    private final DetalleClienteDAO dao;
+
+    // Optional.empty() = "sabemos que este cliente no tiene detalle"
+    private final LruCache<Integer, Optional<DetalleCliente>> cache;
+
+    public DetalleClienteCache(DetalleClienteDAO dao) {
+        this(dao, DEFAULT_CAPACIDAD);
+    }
+
+    public DetalleClienteCache(DetalleClienteDAO dao, int capacidad) {
+        this.dao = dao;
+        this.cache = new LruCache<>(capacidad);
+    }
+
+    /** Detalle del cliente (null si no tiene), de la caché o de la BD. */
+    public DetalleCliente get(int id) throws SQLException {
+        Optional<DetalleCliente> hecho = cache.get(id);
+        if (hecho != null) return hecho.orElse(null);
+
+        DetalleCliente d = dao.findById(id);
+        cache.put(id, Optional.ofNullable(d));
+        return d;
+    }
+
+    /** Carga con una sola consulta los que aún no estén en caché. Devuelve cuántos ha pedido. */
+    public int precargar(Collection<Integer> ids) throws SQLException {
+        List<Integer> faltan = new ArrayList<>();
+        for (Integer id : ids) {
+            if (id != null && !cache.containsKey(id)) faltan.add(id);
+        }
+        if (faltan.isEmpty()) return 0;
+
+        Set<Integer> sinDetalle = new HashSet<>(faltan);
+        for (DetalleCliente d : dao.findByIds(faltan)) {
+            cache.put(d.getId(), Optional.of(d));
+            sinDetalle.remove(d.getId());
+        }
+        for (Integer id : sinDetalle) {
+            cache.put(id, Optional.empty());
+        }
+        return faltan.size();
+    }
+
+    /** Detalle si ya está en caché (sin ir a la BD); null si no tiene o no se ha cargado. */
+    public DetalleCliente enCache(int id) {
+        Optional<DetalleCliente> hecho = cache.get(id);
+        return hecho == null ? null : hecho.orElse(null);
+    }
+
+    public boolean estaEnCache(int id) {
+        return cache.containsKey(id);
+    }
+
+    /** Olvida un detalle (después de guardarlo o borrarlo). */
+    public void invalidar(int id) {
+        cache.remove(id);
+    }
+
+    public void invalidarTodo() {
+        cache.clear();
+    }
+}
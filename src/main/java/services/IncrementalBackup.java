@@ -0,0 +1,257 @@
+package services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import dao.RegistroCambios;
+import db.Db;
+import db.SqlScripts;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copias incrementales de la BD en una carpeta:
+ *
+ *   manifest.json     qué ficheros hay, en qué orden aplicarlos y el snapshot de la última copia
+ *   base.json         la primera exportación (completa)
+ *   delta-0001.json   solo lo que ha cambiado desde la anterior
+ *   delta-0002.json   ...
+ *
+ * Los cambios salen de la tabla registro_cambios, que mantienen los triggers de
+ * SqlScripts.REGISTRO_CAMBIOS (se instalan solos antes de la base). Cada copia
+ * guarda el snapshot de PostgreSQL de su transacción REPEATABLE READ; el siguiente
+ * delta lleva las filas insertadas o modificadas que ese snapshot no veía (con su
+ * valor actual, en los arrays de siempre) y, al final, las claves borradas:
+ *
+ *   "borrados": { "envio": [[3]], "detalle_pedido": [[7, 2]], "cliente": [[5]] }
+ *
+ * en orden inverso de FKs. Así entran los UPDATE, los DELETE, las líneas nuevas de
+ * pedidos ya copiados y los ids que no son mayores que los ya copiados.
+ *
+ * restaurar() importa la base y después cada delta en orden con StreamingImporter
+ * (los deltas en modo UPSERT, que también aplica los borrados).
+ */
+public class IncrementalBackup {
+
+    public static final String MANIFEST = "manifest.json";
+
+    /** Propiedad del delta con las claves borradas (la lee StreamingImporter). */
+    public static final String BORRADOS = "borrados";
+
+    private final File dir;
+    private final String extension;
+    private final int fetchSize;
+
+    public IncrementalBackup(File dir) {
+        this(dir, JsonIO.Format.JSON.extension(), StreamingExporter.DEFAULT_FETCH_SIZE);
+    }
+
+    /** extension: formato de los ficheros de datos (.json, .smile.gz, ... ver JsonIO). */
+    public IncrementalBackup(File dir, String extension, int fetchSize) {
+        this.dir = dir;
+        this.extension = extension;
+        this.fetchSize = fetchSize;
+    }
+
+    // =========================================================
+    // MANIFEST (se serializa con JsonIO)
+    // =========================================================
+
+    public static class Manifest {
+        private List<Entrada> ficheros = new ArrayList<>();   // base + deltas, en orden de aplicación
+        private String snapshot;                              // pg_current_snapshot() de la última copia
+
+        public Manifest() { }
+
+        public List<Entrada> getFicheros() { return ficheros; }
+        public void setFicheros(List<Entrada> ficheros) { this.ficheros = ficheros; }
+
+        public String getSnapshot() { return snapshot; }
+        public void setSnapshot(String snapshot) { this.snapshot = snapshot; }
+    }
+
+    public static class Entrada {
+        private String fichero;
+        private String tipo;                                  // "base" o "delta"
+        private Instant fecha;
+        private Map<String, Long> filas = new LinkedHashMap<>(); // tabla -> filas en este fichero
+        private Map<String, Long> borrados = new LinkedHashMap<>(); // tabla -> claves borradas (deltas)
+
+        public Entrada() { }
+
+        public String getFichero() { return fichero; }
+        public void setFichero(String fichero) { this.fichero = fichero; }
+
+        public String getTipo() { return tipo; }
+        public void setTipo(String tipo) { this.tipo = tipo; }
+
+        public Instant getFecha() { return fecha; }
+        public void setFecha(Instant fecha) { this.fecha = fecha; }
+
+        public Map<String, Long> getFilas() { return filas; }
+        public void setFilas(Map<String, Long> filas) { this.filas = filas; }
+
+        public Map<String, Long> getBorrados() { return borrados; }
+        public void setBorrados(Map<String, Long> borrados) { this.borrados = borrados; }
+
+        @Override
+        public String toString() {
+            return "%-6s %-22s %s %s".formatted(tipo, fichero, fecha, filas)
+                    + (borrados.isEmpty() ? "" : " borrados=" + borrados);
+        }
+    }
+
+    public Manifest leerManifest() throws IOException {
+        File f = new File(dir, MANIFEST);
+        return f.exists() ? JsonIO.read(f, Manifest.class) : new Manifest();
+    }
+
+    private void guardarManifest(Manifest m) throws IOException {
+        File f = new File(dir, MANIFEST);
+        File tmp = new File(dir, ".tmp_" + MANIFEST);
+        JsonIO.write(tmp, m);
+        Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // =========================================================
+    // EXPORTAR
+    // =========================================================
+
+    /**
+     * Si la carpeta no tiene copia, hace la base; si ya la tiene, un delta con
+     * lo cambiado desde la anterior. Devuelve la entrada añadida al manifest.
+     */
+    public Entrada exportar() throws SQLException, IOException {
+        dir.mkdirs();
+        Manifest m = leerManifest();
+        boolean esBase = m.getFicheros().isEmpty();
+        try (Connection con = Db.getConnection()) {
+            if (!RegistroCambios.instalado(con)) {
+                if (!esBase) throw new SQLException("Falta el registro de cambios: los deltas no serían completos");
+                SqlScripts.ejecutar(SqlScripts.REGISTRO_CAMBIOS);
+            }
+        }
+
+        Entrada e = new Entrada();
+        e.setTipo(esBase ? "base" : "delta");
+        e.setFichero(esBase ? "base" + extension : "delta-%04d%s".formatted(m.getFicheros().size(), extension));
+        e.setFecha(Instant.now());
+
+        File destino = new File(dir, e.getFichero());
+        File tmp = new File(dir, ".tmp_" + e.getFichero());
+        String snapshot;
+        ObjectWriter writer = JsonIO.rowWriter();
+
+        try (Connection con = Db.getConnection();
+             JsonGenerator gen = JsonIO.openGenerator(tmp)) {
+
+            con.setAutoCommit(false);
+            con.setReadOnly(true);
+            con.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+
+            try {
+                // Lo primero de la transacción: fija la foto que se va a leer
+                snapshot = RegistroCambios.snapshotActual(con);
+                String desde = esBase ? null : m.getSnapshot();
+
+                gen.writeStartObject();
+                for (SnapshotTable t : SnapshotTable.values()) {
+                    long n = StreamingExporter.escribirTabla(con, gen, writer, t, fetchSize, desde);
+                    e.getFilas().put(t.table(), n);
+                }
+                if (desde != null) {
+                    escribirBorrados(con, gen, desde, e.getBorrados());
+                }
+                gen.writeEndObject();
+                con.commit();
+            } catch (SQLException | IOException ex) {
+                con.rollback();
+                throw ex;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException | IOException ex) {
+            Files.deleteIfExists(tmp.toPath());
+            throw ex;
+        }
+
+        // Primero el fichero de datos y después el manifest que lo referencia
+        Files.move(tmp.toPath(), destino.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        m.getFicheros().add(e);
+        m.setSnapshot(snapshot);
+        guardarManifest(m);
+        return e;
+    }
+
+    /** "borrados": { "tabla": [[clave], ...], ... } de las tablas con borrados, hijas antes que padres. */
+    private static void escribirBorrados(Connection con, JsonGenerator gen, String desde,
+                                         Map<String, Long> cuenta) throws SQLException, IOException {
+        SnapshotTable[] tablas = SnapshotTable.values();
+        gen.writeObjectFieldStart(BORRADOS);
+        for (int i = tablas.length - 1; i >= 0; i--) {
+            String tabla = tablas[i].table();
+            long[] n = {0};
+            try {
+                RegistroCambios.forEachBorrada(con, tabla, desde, clave -> {
+                    try {
+                        if (n[0]++ == 0) gen.writeArrayFieldStart(tabla);
+                        gen.writeArray(clave, 0, clave.length);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            if (n[0] > 0) {
+                gen.writeEndArray();
+                cuenta.put(tabla, n[0]);
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    /** Borra manifest, base y deltas: la próxima exportación será una base nueva. */
+    public void empezarDeCero() throws IOException {
+        Manifest m = leerManifest();
+        for (Entrada e : m.getFicheros()) {
+            Files.deleteIfExists(new File(dir, e.getFichero()).toPath());
+        }
+        Files.deleteIfExists(new File(dir, MANIFEST).toPath());
+    }
+
+    // =========================================================
+    // RESTAURAR
+    // =========================================================
+
+    /**
+     * Aplica la base y todos los deltas, en orden, sobre la BD (que debe estar vacía
+     * o sin esos ids). Cada fichero se importa con StreamingImporter, así que una
+     * restauración interrumpida se puede relanzar: los ficheros ya completos se
+     * saltan y el que estaba a medias continúa desde su último bloque.
+     */
+    public List<Entrada> restaurar() throws IOException, SQLException {
+        Manifest m = leerManifest();
+        StreamingImporter base = new StreamingImporter();
+        StreamingImporter deltas = new StreamingImporter(CopyImporter.Mode.UPSERT);
+        for (Entrada e : m.getFicheros()) {
+            File f = new File(dir, e.getFichero());
+            if ("base".equals(e.getTipo())) {
+                base.importar(f);
+            } else {
+                deltas.importar(f);
+            }
+        }
+        return m.getFicheros();
+    }
+}
@@ -1,36 +1,164 @@
 package services;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Utilidad genérica para exportar/importar JSON usando Jackson.
  * - write(file, data): serializa cualquier objeto a JSON
  * - read(file, Class<T>): deserializa JSON a un tipo concreto
+ * - openGenerator/rowWriter: para escribir en streaming, fila a fila
+ * - openParser: para leer en streaming, fila a fila
+ * - fromJson: para JSON que ya está en memoria (p. ej. el que devuelve PostgreSQL)
+ *
+ * El formato sale de la extensión del fichero:
+ *   .json      JSON con sangría (el de siempre)
+ *   .min.json  JSON compacto, sin espacios
+ *   .smile     Smile (JSON binario de Jackson)
+ *   .cbor      CBOR (RFC 8949)
+ * y si además acaba en .gz, se comprime con gzip (p. ej. datos.smile.gz).
  */
 public final class JsonIO {
 
+    public enum Format {
+        JSON(".json"),
+        JSON_COMPACT(".min.json"),
+        SMILE(".smile"),
+        CBOR(".cbor");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String extension() { return extension; }
+    }
+
+    private static final String GZIP_EXTENSION = ".gz";
+    private static final int BUFFER_BYTES = 64 * 1024;
+
     // ObjectMapper es el motor de Jackson: convierte Java <-> JSON
-    private static final ObjectMapper MAPPER = new ObjectMapper()
+    private static final ObjectMapper MAPPER = configurar(new ObjectMapper())
             .enable(SerializationFeature.INDENT_OUTPUT); // JSON "bonito" (pretty print)
 
+    private static final ObjectMapper COMPACT = configurar(new ObjectMapper());
+    private static final ObjectMapper SMILE = configurar(new ObjectMapper(new SmileFactory()));
+    private static final ObjectMapper CBOR = configurar(new ObjectMapper(new CBORFactory()));
+
     private JsonIO() { }
 
-    /** Escribe un objeto Java como JSON en el fichero. */
-    public static <T> void write(File file, T data) throws IOException {
+    private static ObjectMapper configurar(ObjectMapper m) {
+        return m.registerModule(new JavaTimeModule())                      // LocalDate de Pedido
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)   // fechas como "2024-01-31"
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES); // total/importe son calculados
+    }
+
+    // =========================================================
+    // FORMATO SEGÚN EXTENSIÓN
+    // =========================================================
+
+    /** Formato del fichero según su extensión (sin contar el .gz). */
+    public static Format formatOf(File file) {
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(GZIP_EXTENSION)) name = name.substring(0, name.length() - GZIP_EXTENSION.length());
+
+        // .min.json antes que .json, que también lo cumple
+        if (name.endsWith(Format.JSON_COMPACT.extension)) return Format.JSON_COMPACT;
+        if (name.endsWith(Format.SMILE.extension)) return Format.SMILE;
+        if (name.endsWith(Format.CBOR.extension)) return Format.CBOR;
+        return Format.JSON;
+    }
+
+    public static boolean isGzip(File file) {
+        return file.getName().toLowerCase().endsWith(GZIP_EXTENSION);
+    }
+
+    private static ObjectMapper mapperFor(Format format) {
+        return switch (format) {
+            case JSON -> MAPPER;
+            case JSON_COMPACT -> COMPACT;
+            case SMILE -> SMILE;
+            case CBOR -> CBOR;
+        };
+    }
+
+    private static OutputStream abrirSalida(File file) throws IOException {
         // Si el fichero está en una carpeta que no existe, la creamos
         File parent = file.getParentFile();
         if (parent != null) parent.mkdirs();
 
-        MAPPER.writeValue(file, data);
+        OutputStream out = new FileOutputStream(file);
+        if (isGzip(file)) return new GZIPOutputStream(out, BUFFER_BYTES);
+        return new BufferedOutputStream(out, BUFFER_BYTES);
+    }
+
+    private static InputStream abrirEntrada(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        if (isGzip(file)) return new GZIPInputStream(in, BUFFER_BYTES);
+        return new BufferedInputStream(in, BUFFER_BYTES);
+    }
+
+    // =========================================================
+    // LECTURA / ESCRITURA
+    // =========================================================
+
+    /** Escribe un objeto Java en el fichero, en el formato de su extensión. */
+    public static <T> void write(File file, T data) throws IOException {
+        try (OutputStream out = abrirSalida(file)) {
+            mapperFor(formatOf(file)).writeValue(out, data);
+        }
+    }
+
+    /**
+     * Generador para escribir el documento poco a poco (sin tenerlo entero en memoria),
+     * con el mismo formato que write(). Al cerrarlo se cierra (y comprime) el fichero.
+     */
+    static JsonGenerator openGenerator(File file) throws IOException {
+        Format format = formatOf(file);
+        JsonGenerator gen = mapperFor(format).getFactory().createGenerator(abrirSalida(file));
+        if (format == Format.JSON) gen.useDefaultPrettyPrinter();
+        return gen;
+    }
+
+    /** Writer para volcar objetos sueltos en un generador sin hacer flush tras cada uno. */
+    static ObjectWriter rowWriter() {
+        return COMPACT.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /** Parser en streaming; readValueAs() usa la misma configuración que read(). */
+    static JsonParser openParser(File file) throws IOException {
+        return mapperFor(formatOf(file)).createParser(abrirEntrada(file));
+    }
+
+    /** Convierte un texto JSON (p. ej. el resultado de una consulta json_build_object) al tipo indicado. */
+    static <T> T fromJson(String json, Class<T> type) throws IOException {
+        return COMPACT.readValue(json, type);
     }
 
-    /** Lee un JSON desde fichero y lo convierte al tipo indicado. */
+    /** Lee un fichero (en el formato de su extensión) y lo convierte al tipo indicado. */
     public static <T> T read(File file, Class<T> type) throws IOException {
-        return MAPPER.readValue(file, type);
+        try (InputStream in = abrirEntrada(file)) {
+            return mapperFor(formatOf(file)).readValue(in, type);
+        }
     }
-}
\ No newline at end of file
+}
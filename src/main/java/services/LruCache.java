@@ -0,0 +1,57 @@
+package services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Mapa acotado que, al llenarse, descarta la entrada usada hace más tiempo (LRU).
+ * Es un LinkedHashMap en orden de acceso con todos los métodos sincronizados,
+ * así que se puede compartir entre el hilo de JavaFX y las tareas de fondo.
+ */
+public class LruCache<K, V> {
+
+    private final int capacidad;
+
+    // Orden de acceso: la primera entrada es la menos usada recientemente
+    private final LinkedHashMap<K, V> mapa;
+
+    public LruCache(int capacidad) {
+        if (capacidad < 1) throw new IllegalArgumentException("capacidad debe ser >= 1");
+        this.capacidad = capacidad;
+        this.mapa = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > LruCache.this.capacidad;
+            }
+        };
+    }
+
+    /** Valor guardado (y lo marca como recién usado), o null. */
+    public synchronized V get(K clave) {
+        return mapa.get(clave);
+    }
+
+    public synchronized void put(K clave, V valor) {
+        mapa.put(clave, valor);
+    }
+
+    public synchronized V remove(K clave) {
+        return mapa.remove(clave);
+    }
+
+    public synchronized boolean containsKey(K clave) {
+        return mapa.containsKey(clave);
+    }
+
+    public synchronized void clear() {
+        mapa.clear();
+    }
+
+    public synchronized int size() {
+        return mapa.size();
+    }
+
+    public int getCapacidad() {
+        return capacidad;
+    }
+}
@@ -0,0 +1,186 @@
+package services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import db.Db;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exporta las ocho tablas a la vez, cada una con su conexión y su fichero,
+ * pero todas viendo exactamente la misma foto de la BD.
+ *
+ * Cómo se consigue la foto común:
+ *  1) Una conexión "coordinadora" abre una transacción REPEATABLE READ y
+ *     llama a pg_export_snapshot(), que devuelve un id de snapshot.
+ *  2) Cada worker abre su propia transacción REPEATABLE READ y ejecuta
+ *     SET TRANSACTION SNAPSHOT 'id' antes de leer nada.
+ *  3) La coordinadora mantiene su transacción abierta hasta que acaban todos
+ *     (si se cierra antes, el snapshot deja de poder importarse).
+ *
+ * Cada fichero es un AppData parcial ({"clientes": [...]}), así que se puede
+ * importar con StreamingImporter tabla a tabla, en orden de FKs.
+ */
+public class ParallelExporter {
+
+    /** Resultado de una tabla. */
+    public record TableExport(SnapshotTable tabla, File fichero, long filas, long millis) {
+        @Override
+        public String toString() {
+            return "%-15s %9d filas %7d ms -> %s".formatted(tabla.table(), filas, millis, fichero.getName());
+        }
+    }
+
+    private final int fetchSize;
+    private final int paralelismo;
+
+    public ParallelExporter() {
+        // Una conexión es de la coordinadora; el resto pueden ser workers
+        this(StreamingExporter.DEFAULT_FETCH_SIZE,
+                Math.max(1, Math.min(SnapshotTable.values().length, Db.getPool().getMaxSize() - 1)));
+    }
+
+    public ParallelExporter(int fetchSize, int paralelismo) {
+        this.fetchSize = fetchSize;
+        this.paralelismo = paralelismo;
+    }
+
+    /** Fichero en el que se escribe cada tabla dentro de 'dir' (extensión: ver JsonIO). */
+    public static File ficheroDe(File dir, SnapshotTable t, String extension) {
+        return new File(dir, t.property() + extension);
+    }
+
+    public Map<SnapshotTable, TableExport> exportar(File dir) throws SQLException, IOException {
+        return exportar(dir, JsonIO.Format.JSON.extension());
+    }
+
+    public Map<SnapshotTable, TableExport> exportar(File dir, String extension) throws SQLException, IOException {
+        dir.mkdirs();
+        Map<SnapshotTable, TableExport> out = new EnumMap<>(SnapshotTable.class);
+
+        try (Connection coord = Db.getConnection()) {
+            coord.setAutoCommit(false);
+            coord.setReadOnly(true);
+            coord.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+
+            ExecutorService pool = Executors.newFixedThreadPool(paralelismo, r -> {
+                Thread t = new Thread(r, "export-worker");
+                t.setDaemon(true);
+                return t;
+            });
+
+            try {
+                String snapshot = exportarSnapshot(coord);
+
+                CompletionService<TableExport> cs = new ExecutorCompletionService<>(pool);
+                List<Future<TableExport>> tareas = new ArrayList<>();
+                for (SnapshotTable t : SnapshotTable.values()) {
+                    tareas.add(cs.submit(() -> exportarTabla(snapshot, t, ficheroDe(dir, t, extension))));
+                }
+
+                // Recogemos en orden de llegada; al primer fallo se cancela el resto
+                for (int i = 0; i < tareas.size(); i++) {
+                    try {
+                        TableExport r = cs.take().get();
+                        out.put(r.tabla(), r);
+                    } catch (ExecutionException e) {
+                        tareas.forEach(f -> f.cancel(true));
+                        throw relanzar(e.getCause());
+                    }
+                }
+                coord.commit();
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Exportación interrumpida", e);
+            } catch (SQLException | IOException | RuntimeException e) {
+                coord.rollback();
+                throw e;
+            } finally {
+                pool.shutdownNow();
+                coord.setAutoCommit(true);
+            }
+        }
+        return out;
+    }
+
+    // También la usa SnapshotLoader
+    static String exportarSnapshot(Connection coord) throws SQLException {
+        try (Statement st = coord.createStatement();
+             ResultSet rs = st.executeQuery("SELECT pg_export_snapshot()")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    /** Trabajo de un worker: importa el snapshot y vuelca la tabla a su fichero. */
+    private TableExport exportarTabla(String snapshot, SnapshotTable t, File destino) throws SQLException, IOException {
+        long t0 = System.nanoTime();
+        File tmp = new File(destino.getParentFile(), ".tmp_" + destino.getName());
+        long filas;
+
+        try (Connection con = Db.getConnection();
+             JsonGenerator gen = JsonIO.openGenerator(tmp)) {
+
+            con.setAutoCommit(false);
+            con.setReadOnly(true);
+            con.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+
+            try {
+                // Debe ser la primera sentencia de la transacción
+                try (Statement st = con.createStatement()) {
+                    st.execute("SET TRANSACTION SNAPSHOT '" + validarId(snapshot) + "'");
+                }
+
+                gen.writeStartObject();
+                filas = StreamingExporter.escribirTabla(con, gen, JsonIO.rowWriter(), t, fetchSize);
+                gen.writeEndObject();
+                con.commit();
+            } catch (SQLException | IOException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException | IOException e) {
+            Files.deleteIfExists(tmp.toPath());
+            throw e;
+        }
+
+        Files.move(tmp.toPath(), destino.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return new TableExport(t, destino, filas, (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    // El id va concatenado en el SQL (SET TRANSACTION no admite parámetros)
+    static String validarId(String snapshot) throws SQLException {
+        if (snapshot == null || !snapshot.matches("[0-9A-Fa-f-]+")) {
+            throw new SQLException("Id de snapshot inesperado: " + snapshot);
+        }
+        return snapshot;
+    }
+
+    // Devuelve la excepción original del worker para relanzarla con su tipo
+    private static SQLException relanzar(Throwable causa) throws IOException {
+        if (causa instanceof SQLException e) return e;
+        if (causa instanceof IOException e) throw e;
+        if (causa instanceof RuntimeException e) throw e;
+        if (causa instanceof Error e) throw e;
+        return new SQLException("Fallo exportando una tabla", causa);
+    }
+}
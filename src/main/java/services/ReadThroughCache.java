@@ -0,0 +1,170 @@
+package services;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Caché de lectura ("read-through") para entidades que cambian poco:
+ * get(clave) devuelve lo guardado y, si no está o ha caducado, lo carga con el
+ * Loader (normalmente el findById del DAO) y lo guarda.
+ *
+ *  - Tamaño máximo: al pasarse se descarta la entrada usada hace más tiempo (LRU).
+ *  - TTL: cada entrada caduca a los 'ttl' de cargarse, aunque nadie la invalide
+ *    (por si otro proceso cambia la tabla).
+ *  - También se guarda "no existe" (null), para no repetir consultas de ids inexistentes.
+ *  - precargar(): llenarla de golpe con un findAll().
+ *  - invalidar(): después de insertar / actualizar / borrar.
+ *
+ * La carga se hace fuera del lock: dos hilos que piden la misma clave a la vez
+ * pueden cargarla los dos (da igual, el resultado es el mismo). Lo que no puede
+ * pasar es que un invalidar() que llega mientras se carga quede pisado por el
+ * valor viejo: cada invalidación sube 'generacion', y lo cargado solo se guarda
+ * si la generación no ha cambiado desde antes de cargar.
+ */
+public class ReadThroughCache<K, V> {
+
+    @FunctionalInterface
+    public interface Loader<K, V> {
+        V load(K clave) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface BulkLoader<C> {
+        C loadAll() throws SQLException;
+    }
+
+    private record Entrada<V>(Optional<V> valor, long caducaNanos) { }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Loader<K, V> loader;
+
+    // Orden de acceso: la primera es la usada hace más tiempo
+    private final LinkedHashMap<K, Entrada<V>> mapa = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Sube en cada invalidación (protegida por el lock, como 'mapa')
+    private long generacion;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expiradas = new AtomicLong();
+    private final AtomicLong desalojadas = new AtomicLong();
+
+    public ReadThroughCache(int maxSize, Duration ttl, Loader<K, V> loader) {
+        if (maxSize < 1) throw new IllegalArgumentException("maxSize debe ser >= 1");
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.loader = loader;
+    }
+
+    /** Valor de la clave (null si no existe), de la caché o cargándolo. */
+    public V get(K clave) throws SQLException {
+        long gen;
+        synchronized (this) {
+            gen = generacion;
+            Entrada<V> e = mapa.get(clave);
+            if (e != null) {
+                if (System.nanoTime() - e.caducaNanos() < 0) {
+                    hits.incrementAndGet();
+                    return e.valor().orElse(null);
+                }
+                mapa.remove(clave);
+                expiradas.incrementAndGet();
+            }
+        }
+
+        misses.incrementAndGet();
+        V v = loader.load(clave);
+        synchronized (this) {
+            // Invalidada mientras se cargaba: v puede ser anterior al cambio, no se guarda
+            if (gen == generacion) put(clave, v);
+        }
+        return v;
+    }
+
+    /** Guarda (o sustituye) un valor; null = "no existe". */
+    public synchronized void put(K clave, V valor) {
+        mapa.put(clave, new Entrada<>(Optional.ofNullable(valor), System.nanoTime() + ttlNanos));
+        desalojar();
+    }
+
+    /**
+     * Lanza una carga masiva (p. ej. el findAll() de una tabla pequeña) y guarda lo
+     * que devuelva, salvo que mientras tanto se haya invalidado algo (como en get()).
+     */
+    public <C extends Collection<? extends V>> C precargar(BulkLoader<C> cargador,
+                                                          Function<? super V, ? extends K> clave) throws SQLException {
+        long gen;
+        synchronized (this) {
+            gen = generacion;
+        }
+        C valores = cargador.loadAll();
+        synchronized (this) {
+            if (gen == generacion) precargar(valores, clave);
+        }
+        return valores;
+    }
+
+    /** Carga de golpe una colección ya leída. */
+    public synchronized void precargar(Collection<? extends V> valores, Function<? super V, ? extends K> clave) {
+        for (V v : valores) {
+            mapa.put(clave.apply(v), new Entrada<>(Optional.of(v), System.nanoTime() + ttlNanos));
+        }
+        desalojar();
+    }
+
+    public synchronized void invalidar(K clave) {
+        generacion++;
+        mapa.remove(clave);
+    }
+
+    public synchronized void invalidarTodo() {
+        generacion++;
+        mapa.clear();
+    }
+
+    public synchronized int size() {
+        return mapa.size();
+    }
+
+    private void desalojar() {
+        Iterator<Map.Entry<K, Entrada<V>>> it = mapa.entrySet().iterator();
+        while (mapa.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+            desalojadas.incrementAndGet();
+        }
+    }
+
+    // =========================================================
+    // MÉTRICAS
+    // =========================================================
+
+    public long getHits() { return hits.get(); }
+
+    public long getMisses() { return misses.get(); }
+
+    public long getExpiradas() { return expiradas.get(); }
+
+    public long getDesalojadas() { return desalojadas.get(); }
+
+    /** Aciertos / lecturas, entre 0 y 1 (0 si aún no se ha leído nada). */
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public String stats() {
+        return "hits=%d misses=%d ratio=%.1f%% expiradas=%d desalojadas=%d tamaño=%d/%d"
+                .formatted(getHits(), getMisses(), getHitRatio() * 100, getExpiradas(),
+                        getDesalojadas(), size(), maxSize);
+    }
+}
@@ -0,0 +1,193 @@
+package services;
+
+import db.Db;
+import model.AppData;
+import org.postgresql.PGConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Carga las ocho tablas en un AppData a la vez, cada una con su conexión,
+ * en vez de un findAll() detrás de otro: el tiempo total pasa a ser más o
+ * menos el de la tabla más lenta.
+ *
+ *  - Paralelismo acotado: como mucho 'paralelismo' tablas a la vez (por
+ *    defecto, las conexiones del pool menos la de la coordinadora).
+ *  - Misma foto para todas: igual que ParallelExporter, una conexión
+ *    coordinadora exporta su snapshot (pg_export_snapshot) y cada worker lo
+ *    importa, así que las FKs cuadran entre tablas.
+ *  - Si una tabla falla, se cancelan las consultas de las demás en el servidor
+ *    (PGConnection.cancelQuery) en vez de esperar a que terminen, y se relanza
+ *    el primer error.
+ *
+ * Todo se queda en memoria: para tablas grandes que van a un fichero es
+ * mejor StreamingExporter / ParallelExporter.
+ */
+public class SnapshotLoader {
+
+    /** Tiempo de una tabla. */
+    public record TableLoad(SnapshotTable tabla, long filas, long millis) {
+        @Override
+        public String toString() {
+            return "%-15s %9d filas %7d ms".formatted(tabla.table(), filas, millis);
+        }
+    }
+
+    /** Los datos y cuánto ha tardado cada tabla (y el total). */
+    public record Snapshot(AppData data, Map<SnapshotTable, TableLoad> tablas, long millis) { }
+
+    private final int fetchSize;
+    private final int paralelismo;
+
+    public SnapshotLoader() {
+        // Una conexión es de la coordinadora; el resto pueden ser workers
+        this(StreamingExporter.DEFAULT_FETCH_SIZE,
+                Math.max(1, Math.min(SnapshotTable.values().length, Db.getPool().getMaxSize() - 1)));
+    }
+
+    public SnapshotLoader(int fetchSize, int paralelismo) {
+        if (fetchSize < 1 || paralelismo < 1) throw new IllegalArgumentException("fetchSize y paralelismo deben ser >= 1");
+        this.fetchSize = fetchSize;
+        this.paralelismo = paralelismo;
+    }
+
+    public Snapshot cargar() throws SQLException {
+        long t0 = System.nanoTime();
+        Map<SnapshotTable, List<Object>> filas = new EnumMap<>(SnapshotTable.class);
+        Map<SnapshotTable, TableLoad> tiempos = new EnumMap<>(SnapshotTable.class);
+
+        // Conexiones con una consulta en marcha, para poder cancelarlas
+        Map<SnapshotTable, Connection> activas = new ConcurrentHashMap<>();
+
+        try (Connection coord = Db.getConnection()) {
+            coord.setAutoCommit(false);
+            coord.setReadOnly(true);
+            coord.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+
+            ExecutorService pool = Executors.newFixedThreadPool(paralelismo, r -> {
+                Thread t = new Thread(r, "snapshot-loader");
+                t.setDaemon(true);
+                return t;
+            });
+
+            try {
+                String snapshot = ParallelExporter.exportarSnapshot(coord);
+
+                CompletionService<Map.Entry<TableLoad, List<Object>>> cs = new ExecutorCompletionService<>(pool);
+                List<Future<Map.Entry<TableLoad, List<Object>>>> tareas = new ArrayList<>();
+                for (SnapshotTable t : SnapshotTable.values()) {
+                    tareas.add(cs.submit(() -> cargarTabla(snapshot, t, activas)));
+                }
+
+                // En orden de llegada; al primer fallo se cancela el resto
+                for (int i = 0; i < tareas.size(); i++) {
+                    try {
+                        Map.Entry<TableLoad, List<Object>> r = cs.take().get();
+                        tiempos.put(r.getKey().tabla(), r.getKey());
+                        filas.put(r.getKey().tabla(), r.getValue());
+                    } catch (ExecutionException e) {
+                        tareas.forEach(f -> f.cancel(true));
+                        cancelarConsultas(activas);
+                        throw relanzar(e.getCause());
+                    }
+                }
+                coord.commit();
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelarConsultas(activas);
+                throw new SQLException("Carga interrumpida", e);
+            } catch (SQLException | RuntimeException e) {
+                coord.rollback();
+                throw e;
+            } finally {
+                pool.shutdownNow();
+                coord.setAutoCommit(true);
+            }
+        }
+
+        // Se rellena aquí, en un solo hilo, y en orden de FKs
+        AppData data = new AppData();
+        for (SnapshotTable t : SnapshotTable.values()) {
+            rowsDe(data, t).addAll(filas.get(t));
+        }
+        return new Snapshot(data, tiempos, (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    /** Trabajo de un worker: importa el snapshot y lee la tabla entera con cursor. */
+    private Map.Entry<TableLoad, List<Object>> cargarTabla(String snapshot, SnapshotTable t,
+                                                           Map<SnapshotTable, Connection> activas) throws SQLException {
+        long t0 = System.nanoTime();
+        List<Object> out = new ArrayList<>();
+
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
+            con.setReadOnly(true);
+            con.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+
+            activas.put(t, con);
+            try {
+                // Debe ser la primera sentencia de la transacción
+                try (Statement st = con.createStatement()) {
+                    st.execute("SET TRANSACTION SNAPSHOT '" + ParallelExporter.validarId(snapshot) + "'");
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new SQLException("Carga de " + t.table() + " cancelada");
+                }
+                t.forEach(con, fetchSize, out::add);
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                // Con el lock: cancelarConsultas no puede cancelar esta conexión
+                // cuando ya ha vuelto al pool y la usa otro
+                synchronized (activas) {
+                    activas.remove(t);
+                }
+                con.setAutoCommit(true);
+            }
+        }
+        return Map.entry(new TableLoad(t, out.size(), (System.nanoTime() - t0) / 1_000_000), out);
+    }
+
+    // cancel(true) solo interrumpe el hilo, y el driver no deja de esperar al
+    // servidor por eso: hay que pedirle al servidor que corte la consulta
+    private static void cancelarConsultas(Map<SnapshotTable, Connection> activas) {
+        synchronized (activas) {
+            for (Connection con : activas.values()) {
+                try {
+                    con.unwrap(PGConnection.class).cancelQuery();
+                } catch (SQLException e) {
+                    // Si no se puede cancelar, esa tabla simplemente termina sola
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> rowsDe(AppData data, SnapshotTable t) {
+        return (List<Object>) t.rows(data);
+    }
+
+    // Devuelve la excepción original del worker para relanzarla con su tipo
+    private static SQLException relanzar(Throwable causa) {
+        if (causa instanceof SQLException e) return e;
+        if (causa instanceof RuntimeException e) throw e;
+        if (causa instanceof Error e) throw e;
+        return new SQLException("Fallo cargando una tabla", causa);
+    }
+}
@@ -0,0 +1,131 @@
+package services;
+
+import dao.*;
+import model.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Las ocho tablas que forman una instantánea (AppData), en orden de FKs:
+ * quien depende de otra tabla va detrás de ella.
+ *
+ * Para cada una guardamos el nombre de la propiedad en el JSON de AppData,
+ * la clase del modelo y su DAO. La tabla, las columnas, la clave y los valores
+ * de cada fila salen de las columnas que declara el DAO (su BulkWrite.Tabla):
+ * un cambio de esquema se hace en un solo sitio.
+ */
+public enum SnapshotTable {
+
+    CLIENTES("clientes", Cliente.class, new ClienteDAO(), AppData::getClientes),
+    DETALLES_CLIENTE("detallesCliente", DetalleCliente.class, new DetalleClienteDAO(), AppData::getDetallesCliente),
+    PRODUCTOS("productos", Producto.class, new ProductoDAO(), AppData::getProductos),
+    PEDIDOS("pedidos", Pedido.class, new PedidoDAO(), AppData::getPedidos),
+    DETALLES_PEDIDO("detallesPedido", DetallePedido.class, new DetallePedidoDAO(), AppData::getDetallesPedido),
+    COMERCIALES("comerciales", Comercial.class, new ComercialDAO(), AppData::getComerciales),
+    REPARTIDORES("repartidores", Repartidor.class, new RepartidorDAO(), AppData::getRepartidores),
+    ENVIOS("envios", Envio.class, new EnvioDAO(), AppData::getEnvios);
+
+    private final String property;
+    private final Class<?> type;
+    private final TablaDAO<Object> dao;   // los DAO no tienen estado: uno compartido por tabla
+    private final Function<AppData, List<?>> rows;
+    private final String table;
+    private final List<String> columns;
+    private final List<String> keyColumns;
+
+    // Las filas de cada tabla son siempre de type(); el cast es seguro
+    @SuppressWarnings("unchecked")
+    SnapshotTable(String property, Class<?> type, TablaDAO<?> dao, Function<AppData, List<?>> rows) {
+        this.property = property;
+        this.type = type;
+        this.dao = (TablaDAO<Object>) dao;
+        this.rows = rows;
+        this.table = dao.nombreTabla();
+        this.columns = dao.columnas();
+        this.keyColumns = dao.columnasClave();
+    }
+
+    /** Nombre del array dentro del documento AppData. */
+    public String property() { return property; }
+
+    /** Nombre de la tabla en PostgreSQL. */
+    public String table() { return table; }
+
+    /** Clase del modelo de cada fila (para deserializar el JSON). */
+    public Class<?> type() { return type; }
+
+    public List<String> columns() { return columns; }
+
+    public List<String> keyColumns() { return keyColumns; }
+
+    /** Filas de esta tabla dentro de un AppData ya cargado. */
+    public List<?> rows(AppData data) { return rows.apply(data); }
+
+    /** Valores de una fila en el orden de columns(). */
+    public Object[] values(Object row) { return dao.valores(row); }
+
+    /** Recorre la tabla en la BD con cursor (ver forEach de cada DAO). */
+    public void forEach(Connection con, int fetchSize, Consumer<Object> action) throws SQLException {
+        dao.forEach(con, fetchSize, action);
+    }
+
+    /** Como forEach, pero solo las filas cambiadas desde el snapshot (ver RegistroCambios). */
+    public void forEachCambiadas(Connection con, int fetchSize, String snapshot, Consumer<Object> action) throws SQLException {
+        dao.forEachCambiadas(con, fetchSize, snapshot, action);
+    }
+
+    /** insertAll transaccional del DAO correspondiente (ver BatchInsert). */
+    @SuppressWarnings("unchecked")
+    public BatchResult insertAll(List<?> rows, int batchSize, Connection con) throws SQLException {
+        return dao.insertAll((List<Object>) rows, batchSize, con);
+    }
+
+    /** upsertAll transaccional del DAO correspondiente (una sentencia, ver BulkWrite). */
+    @SuppressWarnings("unchecked")
+    public int upsertAll(List<?> rows, Connection con) throws SQLException {
+        return dao.upsertAll((List<Object>) rows, con);
+    }
+
+    /**
+     * Borra las filas con esas claves (valores de keyColumns(), en su orden) en una
+     * sentencia: cada columna de la clave viaja como un array y unnest() los empareja.
+     * Las claves que ya no existen no cuentan. No hace commit.
+     */
+    public int borrar(List<int[]> claves, Connection con) throws SQLException {
+        if (claves.isEmpty()) return 0;
+        int n = keyColumns.size();
+        String sql = "DELETE FROM " + table + " WHERE (" + String.join(", ", keyColumns)
+                + ") IN (SELECT * FROM unnest(" + String.join(", ", Collections.nCopies(n, "?::integer[]")) + "))";
+
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (int i = 0; i < n; i++) {
+                Integer[] valores = new Integer[claves.size()];
+                for (int j = 0; j < valores.length; j++) valores[j] = claves.get(j)[i];
+                ps.setArray(i + 1, con.createArrayOf("integer", valores));
+            }
+            return ps.executeUpdate();
+        }
+    }
+
+    /** Busca la tabla por su nombre de propiedad JSON; null si no es ninguna. */
+    public static SnapshotTable byProperty(String property) {
+        for (SnapshotTable t : values()) {
+            if (t.property.equals(property)) return t;
+        }
+        return null;
+    }
+
+    /** Busca la tabla por su nombre en PostgreSQL; null si no es ninguna. */
+    public static SnapshotTable byTable(String table) {
+        for (SnapshotTable t : values()) {
+            if (t.table.equals(table)) return t;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,119 @@
+package services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import db.Db;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Exporta la BD al mismo documento que JsonIO.write(file, appData) (mismo
+ * formato según la extensión: .json, .smile, .cbor, .gz...), pero sin
+ * construir el AppData: cada tabla se lee con cursor de servidor (fetchSize
+ * filas por viaje) y cada fila se escribe en el fichero según llega.
+ * La memoria usada no depende del tamaño de la BD.
+ *
+ * Todo se lee en una transacción REPEATABLE READ de solo lectura, así que las
+ * ocho tablas salen de la misma foto de la BD.
+ */
+public class StreamingExporter {
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private final int fetchSize;
+
+    public StreamingExporter() {
+        this(DEFAULT_FETCH_SIZE);
+    }
+
+    public StreamingExporter(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Escribe la instantánea en 'file' y devuelve cuántas filas salieron de cada tabla.
+     * Se escribe primero a un temporal: si algo falla, el fichero anterior queda intacto.
+     */
+    public Map<SnapshotTable, Long> exportar(File file) throws SQLException, IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        // El prefijo conserva la extensión, que es la que decide el formato (ver JsonIO)
+        File tmp = new File(parent, ".tmp_" + file.getName());
+
+        Map<SnapshotTable, Long> filas = new LinkedHashMap<>();
+        ObjectWriter writer = JsonIO.rowWriter();
+
+        try (Connection con = Db.getConnection();
+             JsonGenerator gen = JsonIO.openGenerator(tmp)) {
+
+            con.setAutoCommit(false);
+            con.setReadOnly(true);
+            con.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+
+            try {
+                gen.writeStartObject();
+                for (SnapshotTable t : SnapshotTable.values()) {
+                    filas.put(t, escribirTabla(con, gen, writer, t, fetchSize));
+                }
+                gen.writeEndObject();
+                con.commit();
+            } catch (SQLException | IOException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (IOException | SQLException e) {
+            Files.deleteIfExists(tmp.toPath());
+            throw e;
+        }
+
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return filas;
+    }
+
+    /** "propiedad": [ fila, fila, ... ] para una tabla. */
+    static long escribirTabla(Connection con, JsonGenerator gen, ObjectWriter writer,
+                              SnapshotTable t, int fetchSize) throws SQLException, IOException {
+        return escribirTabla(con, gen, writer, t, fetchSize, null);
+    }
+
+    /**
+     * Igual, pero si cambiosDesde (un snapshot) no es null solo las filas cambiadas
+     * desde entonces (ver SnapshotTable.forEachCambiadas).
+     */
+    static long escribirTabla(Connection con, JsonGenerator gen, ObjectWriter writer,
+                              SnapshotTable t, int fetchSize, String cambiosDesde) throws SQLException, IOException {
+        long[] n = {0};
+        Consumer<Object> escribir = row -> {
+            try {
+                writer.writeValue(gen, row);
+                n[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+
+        gen.writeArrayFieldStart(t.property());
+        try {
+            if (cambiosDesde == null) {
+                t.forEach(con, fetchSize, escribir);
+            } else {
+                t.forEachCambiadas(con, fetchSize, cambiosDesde, escribir);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        gen.writeEndArray();
+        return n[0];
+    }
+}
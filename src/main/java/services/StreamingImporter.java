@@ -0,0 +1,279 @@
+package services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import dao.BatchResult;
+import db.Db;
+import db.SqlScripts;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Importa un JSON de AppData sin cargarlo entero en memoria.
+ *
+ * Recorre el documento con JsonParser, array a array y fila a fila. Las filas
+ * se agrupan en bloques de chunkSize que se insertan con insertAll (JDBC batch)
+ * y se confirman con un commit por bloque.
+ *
+ * Reanudable: en la misma transacción de cada bloque se guarda en la tabla
+ * import_checkpoint cuántas filas de esa tabla van ya confirmadas. Si el
+ * proceso se cae, al volver a lanzar la importación del mismo fichero se
+ * saltan esas filas y se sigue desde el siguiente bloque. Al terminar se deja
+ * una marca de "fichero completo" (tabla '*'): importarlo otra vez sobre la
+ * misma BD no hace nada. La tabla es la migración SqlScripts.IMPORT_CHECKPOINT,
+ * que se instala sola en la primera importación.
+ *
+ * Modo UPSERT: cada bloque entra con upsertAll (INSERT ... ON CONFLICT DO UPDATE,
+ * una sentencia por bloque), así que los ids que ya existen se actualizan en vez
+ * de fallar. Para volver a aplicar un fichero ya importado entero (re-sincronizar
+ * la BD con él) hay que olvidar() antes su marca.
+ *
+ * Si el documento trae "borrados" (deltas de IncrementalBackup), esas claves se
+ * borran al final, en la misma transacción que la marca de completo.
+ *
+ * Los arrays se importan en el orden en que aparecen en el documento, que
+ * debe respetar las FKs (lo hacen tanto JsonIO.write como StreamingExporter).
+ */
+public class StreamingImporter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 5000;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final String SELECT_CHECKPOINT_SQL =
+            "SELECT tabla, filas FROM import_checkpoint WHERE fichero = ?";
+
+    private static final String UPSERT_CHECKPOINT_SQL = """
+            INSERT INTO import_checkpoint (fichero, tabla, filas) VALUES (?, ?, ?)
+            ON CONFLICT (fichero, tabla) DO UPDATE SET filas = EXCLUDED.filas
+            """;
+
+    private static final String DELETE_CHECKPOINT_SQL =
+            "DELETE FROM import_checkpoint WHERE fichero = ?";
+
+    // Valor de 'tabla' que indica que el fichero se importó entero
+    private static final String COMPLETO = "*";
+
+    private final int chunkSize;
+    private final int batchSize;
+    private final CopyImporter.Mode modo;
+
+    public StreamingImporter() {
+        this(CopyImporter.Mode.INSERT);
+    }
+
+    public StreamingImporter(CopyImporter.Mode modo) {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_BATCH_SIZE, modo);
+    }
+
+    public StreamingImporter(int chunkSize, int batchSize) {
+        this(chunkSize, batchSize, CopyImporter.Mode.INSERT);
+    }
+
+    public StreamingImporter(int chunkSize, int batchSize, CopyImporter.Mode modo) {
+        if (chunkSize < 1 || batchSize < 1) throw new IllegalArgumentException("chunkSize y batchSize deben ser >= 1");
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+        this.modo = modo;
+    }
+
+    /**
+     * Importa el fichero (o continúa una importación interrumpida del mismo fichero).
+     * Devuelve las filas insertadas en ESTA ejecución por tabla (vacío si ya estaba importado).
+     */
+    public Map<SnapshotTable, Long> importar(File file) throws IOException, SQLException {
+        String clave = claveFichero(file);
+        Map<SnapshotTable, Long> insertadas = new LinkedHashMap<>();
+
+        try (Connection con = Db.getConnection()) {
+            if (!checkpointInstalado(con)) {
+                SqlScripts.ejecutar(SqlScripts.IMPORT_CHECKPOINT);
+            }
+        }
+
+        try (Connection con = Db.getConnection();
+             JsonParser parser = JsonIO.openParser(file)) {
+
+            Map<String, Long> hechas = leerCheckpoint(con, clave);
+            if (hechas.containsKey(COMPLETO)) {
+                return insertadas;   // ya importado en esta BD
+            }
+
+            con.setAutoCommit(false);
+            try {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IOException("El JSON no empieza por un objeto AppData");
+                }
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String propiedad = parser.currentName();
+                    SnapshotTable t = SnapshotTable.byProperty(propiedad);
+                    JsonToken valor = parser.nextToken();
+
+                    if (IncrementalBackup.BORRADOS.equals(propiedad) && valor == JsonToken.START_OBJECT) {
+                        // Va al final del documento: se aplica con la marca de completo
+                        borrar(con, parser);
+                        continue;
+                    }
+                    if (t == null || valor != JsonToken.START_ARRAY) {
+                        parser.skipChildren();   // propiedad que no es una tabla
+                        continue;
+                    }
+                    long saltar = hechas.getOrDefault(t.table(), 0L);
+                    insertadas.put(t, importarArray(con, parser, t, clave, saltar));
+                }
+
+                // Terminado: fuera los contadores por tabla, queda solo la marca de completo
+                try (PreparedStatement ps = con.prepareStatement(DELETE_CHECKPOINT_SQL)) {
+                    ps.setString(1, clave);
+                    ps.executeUpdate();
+                }
+                guardarCheckpoint(con, clave, COMPLETO, 0);
+                con.commit();
+
+            } catch (SQLException | IOException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+        return insertadas;
+    }
+
+    /** Importa un array (el parser está en su START_ARRAY); salta las 'saltar' primeras filas. */
+    private long importarArray(Connection con, JsonParser parser, SnapshotTable t,
+                               String clave, long saltar) throws IOException, SQLException {
+        List<Object> bloque = new ArrayList<>(chunkSize);
+        long leidas = 0;
+        long insertadas = 0;
+
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (leidas < saltar) {
+                parser.skipChildren();   // ya confirmada en una ejecución anterior
+                leidas++;
+                continue;
+            }
+
+            bloque.add(parser.readValueAs(t.type()));
+            leidas++;
+
+            if (bloque.size() == chunkSize) {
+                insertadas += confirmarBloque(con, t, bloque, clave, leidas);
+            }
+        }
+        if (!bloque.isEmpty()) {
+            insertadas += confirmarBloque(con, t, bloque, clave, leidas);
+        }
+        return insertadas;
+    }
+
+    /** Inserta (o hace upsert de) el bloque y guarda el checkpoint en la misma transacción. */
+    private int confirmarBloque(Connection con, SnapshotTable t, List<Object> bloque,
+                                String clave, long leidas) throws SQLException {
+        long inicio = leidas - bloque.size();
+        if (modo == CopyImporter.Mode.UPSERT) {
+            try {
+                t.upsertAll(bloque, con);
+            } catch (SQLException e) {
+                // Una sola sentencia para todo el bloque: no se sabe qué fila fue
+                throw new SQLException("Error importando " + t.table() + " (filas " + inicio + "-"
+                        + (leidas - 1) + " del array)", e);
+            }
+        } else {
+            BatchResult r = t.insertAll(bloque, batchSize, con);
+            if (!r.isSuccess()) {
+                List<Integer> fallidas = r.getFailedRows();
+                String fila = fallidas.isEmpty() ? "?" : String.valueOf(inicio + fallidas.get(0));
+                throw new SQLException("Error importando " + t.table() + " (fila " + fila + " del array)", r.getError());
+            }
+        }
+
+        guardarCheckpoint(con, clave, t.table(), leidas);
+        con.commit();
+
+        int n = bloque.size();
+        bloque.clear();
+        return n;
+    }
+
+    /**
+     * Borra las claves de "borrados" (el parser está en su START_OBJECT), tabla a
+     * tabla en el orden del documento y en bloques de chunkSize. Sin commit.
+     */
+    private void borrar(Connection con, JsonParser parser) throws IOException, SQLException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            SnapshotTable t = SnapshotTable.byTable(parser.currentName());
+            if (t == null || parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Borrados de una tabla desconocida: " + parser.currentName());
+            }
+            List<int[]> bloque = new ArrayList<>(chunkSize);
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                bloque.add(parser.readValueAs(int[].class));
+                if (bloque.size() == chunkSize) {
+                    t.borrar(bloque, con);
+                    bloque.clear();
+                }
+            }
+            t.borrar(bloque, con);
+        }
+    }
+
+    /** Olvida lo importado de este fichero: la próxima importación lo aplica desde el principio. */
+    public void olvidar(File file) throws SQLException {
+        String clave = claveFichero(file);
+        try (Connection con = Db.getConnection()) {
+            if (!checkpointInstalado(con)) return;   // nunca se ha importado nada
+            try (PreparedStatement ps = con.prepareStatement(DELETE_CHECKPOINT_SQL)) {
+                ps.setString(1, clave);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    // La tabla la crea la migración SqlScripts.IMPORT_CHECKPOINT
+    private static boolean checkpointInstalado(Connection con) throws SQLException {
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT to_regclass('import_checkpoint') IS NOT NULL")) {
+            rs.next();
+            return rs.getBoolean(1);
+        }
+    }
+
+    // Mismo nombre y mismo tamaño => mismo fichero a efectos de reanudar
+    private static String claveFichero(File file) {
+        return file.getAbsolutePath() + ":" + file.length();
+    }
+
+    private void guardarCheckpoint(Connection con, String clave, String tabla, long filas) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(UPSERT_CHECKPOINT_SQL)) {
+            ps.setString(1, clave);
+            ps.setString(2, tabla);
+            ps.setLong(3, filas);
+            ps.executeUpdate();
+        }
+    }
+
+    private Map<String, Long> leerCheckpoint(Connection con, String clave) throws SQLException {
+        Map<String, Long> out = new HashMap<>();
+        try (PreparedStatement ps = con.prepareStatement(SELECT_CHECKPOINT_SQL)) {
+            ps.setString(1, clave);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.put(rs.getString("tabla"), rs.getLong("filas"));
+                }
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,39 @@
+-- Índices para la búsqueda por subcadena (ClienteDAO/ComercialDAO/RepartidorDAO.search).
+--
+-- Un "col ILIKE '%texto%'" no puede usar un índice B-tree normal y acaba en
+-- Seq Scan. Con pg_trgm, PostgreSQL extrae los trigramas del patrón y solo mira
+-- las filas que los contienen. Funciona a partir de 3 caracteres; con menos no
+-- hay trigramas que buscar.
+--
+-- id::text lleva GIN (solo se filtra). Las columnas de texto llevan GiST porque
+-- además se ordena por parecido: "ORDER BY col <->> 'texto' LIMIT n" recorre el
+-- índice de más a menos parecido (KNN) y para a las n filas, sin puntuar todas
+-- las que coinciden. siglen=256 (por defecto 12 bytes) hace la firma de cada fila
+-- lo bastante precisa para que los filtros con pocas o ninguna coincidencia
+-- descarten ramas enteras del índice en vez de recorrerlo casi entero
+-- (siglen necesita PostgreSQL 13 o posterior).
+-- No se añade además un GIN sobre esas columnas: con los dos, el planificador
+-- elige el GIN y vuelve a ordenar todas las coincidencias.
+--
+-- Idempotente: se puede ejecutar varias veces (SqlScripts lo hace sentencia a sentencia).
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- cliente: id (como texto), nombre y email
+CREATE INDEX IF NOT EXISTS cliente_id_trgm ON cliente USING gin ((id::text) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS cliente_nombre_knn ON cliente USING gist (nombre gist_trgm_ops(siglen=256));
+CREATE INDEX IF NOT EXISTS cliente_email_knn ON cliente USING gist (email gist_trgm_ops(siglen=256));
+
+-- comercial: id, nombre y zona de ventas
+CREATE INDEX IF NOT EXISTS comercial_id_trgm ON comercial USING gin ((id::text) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS comercial_nombre_knn ON comercial USING gist (nombre gist_trgm_ops(siglen=256));
+CREATE INDEX IF NOT EXISTS comercial_zonaventas_knn ON comercial USING gist (zonaventas gist_trgm_ops(siglen=256));
+
+-- repartidor: id, nombre y vehículo
+CREATE INDEX IF NOT EXISTS repartidor_id_trgm ON repartidor USING gin ((id::text) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS repartidor_nombre_knn ON repartidor USING gist (nombre gist_trgm_ops(siglen=256));
+CREATE INDEX IF NOT EXISTS repartidor_vehiculo_knn ON repartidor USING gist (vehiculo gist_trgm_ops(siglen=256));
+
+ANALYZE cliente;
+ANALYZE comercial;
+ANALYZE repartidor;
@@ -0,0 +1,123 @@
+-- Avisos de cambios para las cachés (db.InvalidationBus).
+--
+-- Cada INSERT/UPDATE/DELETE en estas tablas manda un NOTIFY por el canal
+-- 'cambios' con el texto 'tabla:ids', los ids separados por comas (p. ej.
+-- 'producto:42' o 'producto:1,2,3'); un TRUNCATE manda 'tabla:*'. Los NOTIFY
+-- se entregan al hacer commit, y solo si lo hay: una transacción que acaba en
+-- rollback no avisa de nada. Dentro de una misma transacción PostgreSQL
+-- descarta los avisos repetidos.
+--
+-- Triggers POR SENTENCIA con tablas de transición: un COPY o un INSERT de un
+-- millón de filas dispara una vez, no un millón. Si la sentencia toca más de
+-- 1000 filas (InvalidationBus.MAX_IDS_POR_TANDA) se manda 'tabla:*' en vez de
+-- la lista; si no, los ids van de 500 en 500 (un NOTIFY admite 8000 bytes).
+--
+-- Idempotente: se puede ejecutar varias veces (SqlScripts lo hace sentencia a sentencia).
+
+CREATE OR REPLACE FUNCTION notificar_cambios() RETURNS trigger AS $$
+DECLARE
+    max_ids CONSTANT INTEGER := 1000;
+    trozo   CONSTANT INTEGER := 500;
+    ids     INTEGER[];
+BEGIN
+    -- Con LIMIT: de una carga masiva solo se leen los necesarios para saber que son muchos
+    IF TG_OP = 'INSERT' THEN
+        SELECT array_agg(id) INTO ids FROM (SELECT id FROM nuevas LIMIT max_ids + 1) t;
+    ELSIF TG_OP = 'DELETE' THEN
+        SELECT array_agg(id) INTO ids FROM (SELECT id FROM viejas LIMIT max_ids + 1) t;
+    ELSE
+        -- En un UPDATE que cambia el id también hay que avisar del nuevo
+        SELECT array_agg(id) INTO ids
+        FROM (SELECT id FROM viejas UNION SELECT id FROM nuevas LIMIT max_ids + 1) t;
+    END IF;
+
+    IF ids IS NULL THEN
+        RETURN NULL;   -- la sentencia no tocó ninguna fila
+    END IF;
+    IF cardinality(ids) > max_ids THEN
+        PERFORM pg_notify('cambios', TG_TABLE_NAME || ':*');
+        RETURN NULL;
+    END IF;
+    FOR i IN 1 .. cardinality(ids) BY trozo LOOP
+        PERFORM pg_notify('cambios', TG_TABLE_NAME || ':' || array_to_string(ids[i : i + trozo - 1], ','));
+    END LOOP;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION notificar_truncate() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('cambios', TG_TABLE_NAME || ':*');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- cliente
+DROP TRIGGER IF EXISTS cliente_cambios_ins ON cliente;
+CREATE TRIGGER cliente_cambios_ins AFTER INSERT ON cliente REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambios();
+DROP TRIGGER IF EXISTS cliente_cambios_upd ON cliente;
+CREATE TRIGGER cliente_cambios_upd AFTER UPDATE ON cliente REFERENCING OLD TABLE AS viejas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambios();
+DROP TRIGGER IF EXISTS cliente_cambios_del ON cliente;
+CREATE TRIGGER cliente_cambios_del AFTER DELETE ON cliente REFERENCING OLD TABLE AS viejas
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambios();
+DROP TRIGGER IF EXISTS cliente_truncate ON cliente;
+CREATE TRIGGER cliente_truncate AFTER TRUNCATE ON cliente
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_truncate();
+
+-- detalle_cliente
+DROP TRIGGER IF EXISTS detalle_cliente_cambios_ins ON detalle_cliente;
+CREATE TRIGGER detalle_cliente_cambios_ins AFTER INSERT ON detalle_cliente REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambios();
+DROP TRIGGER IF EXISTS detalle_cliente_cambios_upd ON detalle_cliente;
+CREATE TRIGGER detalle_cliente_cambios_upd AFTER UPDATE ON detalle_cliente REFERENCING OLD TABLE AS viejas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambios();
+DROP TRIGGER IF EXISTS detalle_cliente_cambios_del ON detalle_cliente;
+CREATE TRIGGER detalle_cliente_cambios_del AFTER DELETE ON detalle_cliente REFERENCING OLD TABLE AS viejas
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambios();
+DROP TRIGGER IF EXISTS detalle_cliente_truncate ON detalle_cliente;
+CREATE TRIGGER detalle_cliente_truncate AFTER TRUNCATE ON detalle_cliente
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_truncate();
+
+-- producto
+DROP TRIGGER IF EXISTS producto_cambios_ins ON producto;
+CREATE TRIGGER producto_cambios_ins AFTER INSERT ON producto REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambios();
+DROP TRIGGER IF EXISTS producto_cambios_upd ON producto;
+CREATE TRIGGER producto_cambios_upd AFTER UPDATE ON producto REFERENCING OLD TABLE AS viejas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambios();
+DROP TRIGGER IF EXISTS producto_cambios_del ON producto;
+CREATE TRIGGER producto_cambios_del AFTER DELETE ON producto REFERENCING OLD TABLE AS viejas
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambios();
+DROP TRIGGER IF EXISTS producto_truncate ON producto;
+CREATE TRIGGER producto_truncate AFTER TRUNCATE ON producto
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_truncate();
+
+-- comercial
+DROP TRIGGER IF EXISTS comercial_cambios_ins ON comercial;
+CREATE TRIGGER comercial_cambios_ins AFTER INSERT ON comercial REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambios();
+DROP TRIGGER IF EXISTS comercial_cambios_upd ON comercial;
+CREATE TRIGGER comercial_cambios_upd AFTER UPDATE ON comercial REFERENCING OLD TABLE AS viejas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambios();
+DROP TRIGGER IF EXISTS comercial_cambios_del ON comercial;
+CREATE TRIGGER comercial_cambios_del AFTER DELETE ON comercial REFERENCING OLD TABLE AS viejas
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambios();
+DROP TRIGGER IF EXISTS comercial_truncate ON comercial;
+CREATE TRIGGER comercial_truncate AFTER TRUNCATE ON comercial
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_truncate();
+
+-- repartidor
+DROP TRIGGER IF EXISTS repartidor_cambios_ins ON repartidor;
+CREATE TRIGGER repartidor_cambios_ins AFTER INSERT ON repartidor REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambios();
+DROP TRIGGER IF EXISTS repartidor_cambios_upd ON repartidor;
+CREATE TRIGGER repartidor_cambios_upd AFTER UPDATE ON repartidor REFERENCING OLD TABLE AS viejas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambios();
+DROP TRIGGER IF EXISTS repartidor_cambios_del ON repartidor;
+CREATE TRIGGER repartidor_cambios_del AFTER DELETE ON repartidor REFERENCING OLD TABLE AS viejas
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_cambios();
+DROP TRIGGER IF EXISTS repartidor_truncate ON repartidor;
+CREATE TRIGGER repartidor_truncate AFTER TRUNCATE ON repartidor
+    FOR EACH STATEMENT EXECUTE FUNCTION notificar_truncate();
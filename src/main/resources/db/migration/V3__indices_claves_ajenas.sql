@@ -0,0 +1,15 @@
+-- Índices sobre claves ajenas (ClienteDetalle.cargarClienteCompleto).
+--
+-- PostgreSQL indexa las claves primarias, pero NO las columnas con FOREIGN KEY.
+-- Sin estos índices, "los pedidos de un cliente" o "el envío de un pedido"
+-- recorren la tabla entera (Seq Scan) aunque solo interesen unas pocas filas.
+-- detalle_pedido ya tiene su clave primaria (pedido_id, producto_id), que
+-- empieza por pedido_id y sirve para "las líneas de un pedido".
+--
+-- Idempotente: se puede ejecutar varias veces (SqlScripts lo hace sentencia a sentencia).
+
+CREATE INDEX IF NOT EXISTS pedido_cliente_id_idx ON pedido (cliente_id);
+CREATE INDEX IF NOT EXISTS envio_pedido_id_idx   ON envio (pedido_id);
+
+ANALYZE pedido;
+ANALYZE envio;
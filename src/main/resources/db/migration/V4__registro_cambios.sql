@@ -0,0 +1,165 @@
+-- Registro de cambios para las copias incrementales (services.IncrementalBackup).
+--
+-- Una fila por clave de cada tabla con la transacción (xid) que la tocó por
+-- última vez y si la fila sigue existiendo o se borró. Un delta exporta las
+-- claves cuya última transacción no era visible en el snapshot de la copia
+-- anterior: así salen los INSERT, UPDATE y DELETE confirmados desde entonces,
+-- sea cual sea el id y aunque confirmen en otro orden que empezaron.
+--
+-- Triggers POR SENTENCIA con tablas de transición: un COPY o un INSERT de un
+-- millón de filas es un solo INSERT ... SELECT aquí, no un millón de disparos.
+-- Un TRUNCATE apunta como borradas todas las filas antes de vaciar la tabla.
+--
+-- Crece con las filas borradas (queda su marca). Las marcas con xid anterior a
+-- la base más antigua que se conserve se pueden borrar a mano.
+--
+-- Necesita PostgreSQL 13 o posterior (xid8, pg_snapshot).
+-- Idempotente: se puede ejecutar varias veces (SqlScripts lo hace sentencia a sentencia).
+
+CREATE TABLE IF NOT EXISTS registro_cambios (
+    tabla   TEXT      NOT NULL,
+    clave   INTEGER[] NOT NULL,   -- valores de la PK, en su orden
+    xid     XID8      NOT NULL,   -- transacción del último cambio
+    borrado BOOLEAN   NOT NULL,
+    PRIMARY KEY (tabla, clave)
+);
+
+CREATE INDEX IF NOT EXISTS registro_cambios_xid ON registro_cambios (tabla, xid);
+
+-- Los argumentos del trigger son las columnas de la PK de la tabla
+CREATE OR REPLACE FUNCTION registrar_cambios() RETURNS trigger AS $$
+DECLARE
+    clave TEXT;
+    sql   TEXT := 'INSERT INTO registro_cambios (tabla, clave, xid, borrado) '
+               || 'SELECT %L, %s, pg_current_xact_id(), %s FROM %s f '
+               || 'ON CONFLICT (tabla, clave) DO UPDATE SET xid = EXCLUDED.xid, borrado = EXCLUDED.borrado';
+BEGIN
+    SELECT 'ARRAY[' || string_agg(format('f.%I', c), ', ') || ']' INTO clave FROM unnest(TG_ARGV) c;
+
+    IF TG_OP = 'TRUNCATE' THEN
+        EXECUTE format(sql, TG_TABLE_NAME, clave, 'true', quote_ident(TG_TABLE_NAME));
+        RETURN NULL;
+    END IF;
+    -- En un UPDATE primero se marcan las claves viejas y después las nuevas:
+    -- si la clave no cambió, la fila queda como no borrada
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        EXECUTE format(sql, TG_TABLE_NAME, clave, 'true', 'viejas');
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        EXECUTE format(sql, TG_TABLE_NAME, clave, 'false', 'nuevas');
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- cliente
+DROP TRIGGER IF EXISTS cliente_registro_ins ON cliente;
+CREATE TRIGGER cliente_registro_ins AFTER INSERT ON cliente REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS cliente_registro_upd ON cliente;
+CREATE TRIGGER cliente_registro_upd AFTER UPDATE ON cliente REFERENCING OLD TABLE AS viejas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS cliente_registro_del ON cliente;
+CREATE TRIGGER cliente_registro_del AFTER DELETE ON cliente REFERENCING OLD TABLE AS viejas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS cliente_registro_trunc ON cliente;
+CREATE TRIGGER cliente_registro_trunc BEFORE TRUNCATE ON cliente
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+
+-- detalle_cliente
+DROP TRIGGER IF EXISTS detalle_cliente_registro_ins ON detalle_cliente;
+CREATE TRIGGER detalle_cliente_registro_ins AFTER INSERT ON detalle_cliente REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS detalle_cliente_registro_upd ON detalle_cliente;
+CREATE TRIGGER detalle_cliente_registro_upd AFTER UPDATE ON detalle_cliente REFERENCING OLD TABLE AS viejas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS detalle_cliente_registro_del ON detalle_cliente;
+CREATE TRIGGER detalle_cliente_registro_del AFTER DELETE ON detalle_cliente REFERENCING OLD TABLE AS viejas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS detalle_cliente_registro_trunc ON detalle_cliente;
+CREATE TRIGGER detalle_cliente_registro_trunc BEFORE TRUNCATE ON detalle_cliente
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+
+-- producto
+DROP TRIGGER IF EXISTS producto_registro_ins ON producto;
+CREATE TRIGGER producto_registro_ins AFTER INSERT ON producto REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS producto_registro_upd ON producto;
+CREATE TRIGGER producto_registro_upd AFTER UPDATE ON producto REFERENCING OLD TABLE AS viejas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS producto_registro_del ON producto;
+CREATE TRIGGER producto_registro_del AFTER DELETE ON producto REFERENCING OLD TABLE AS viejas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS producto_registro_trunc ON producto;
+CREATE TRIGGER producto_registro_trunc BEFORE TRUNCATE ON producto
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+
+-- pedido
+DROP TRIGGER IF EXISTS pedido_registro_ins ON pedido;
+CREATE TRIGGER pedido_registro_ins AFTER INSERT ON pedido REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS pedido_registro_upd ON pedido;
+CREATE TRIGGER pedido_registro_upd AFTER UPDATE ON pedido REFERENCING OLD TABLE AS viejas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS pedido_registro_del ON pedido;
+CREATE TRIGGER pedido_registro_del AFTER DELETE ON pedido REFERENCING OLD TABLE AS viejas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS pedido_registro_trunc ON pedido;
+CREATE TRIGGER pedido_registro_trunc BEFORE TRUNCATE ON pedido
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+
+-- detalle_pedido (clave compuesta)
+DROP TRIGGER IF EXISTS detalle_pedido_registro_ins ON detalle_pedido;
+CREATE TRIGGER detalle_pedido_registro_ins AFTER INSERT ON detalle_pedido REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('pedido_id', 'producto_id');
+DROP TRIGGER IF EXISTS detalle_pedido_registro_upd ON detalle_pedido;
+CREATE TRIGGER detalle_pedido_registro_upd AFTER UPDATE ON detalle_pedido REFERENCING OLD TABLE AS viejas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('pedido_id', 'producto_id');
+DROP TRIGGER IF EXISTS detalle_pedido_registro_del ON detalle_pedido;
+CREATE TRIGGER detalle_pedido_registro_del AFTER DELETE ON detalle_pedido REFERENCING OLD TABLE AS viejas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('pedido_id', 'producto_id');
+DROP TRIGGER IF EXISTS detalle_pedido_registro_trunc ON detalle_pedido;
+CREATE TRIGGER detalle_pedido_registro_trunc BEFORE TRUNCATE ON detalle_pedido
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('pedido_id', 'producto_id');
+
+-- comercial
+DROP TRIGGER IF EXISTS comercial_registro_ins ON comercial;
+CREATE TRIGGER comercial_registro_ins AFTER INSERT ON comercial REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS comercial_registro_upd ON comercial;
+CREATE TRIGGER comercial_registro_upd AFTER UPDATE ON comercial REFERENCING OLD TABLE AS viejas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS comercial_registro_del ON comercial;
+CREATE TRIGGER comercial_registro_del AFTER DELETE ON comercial REFERENCING OLD TABLE AS viejas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS comercial_registro_trunc ON comercial;
+CREATE TRIGGER comercial_registro_trunc BEFORE TRUNCATE ON comercial
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+
+-- repartidor
+DROP TRIGGER IF EXISTS repartidor_registro_ins ON repartidor;
+CREATE TRIGGER repartidor_registro_ins AFTER INSERT ON repartidor REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS repartidor_registro_upd ON repartidor;
+CREATE TRIGGER repartidor_registro_upd AFTER UPDATE ON repartidor REFERENCING OLD TABLE AS viejas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS repartidor_registro_del ON repartidor;
+CREATE TRIGGER repartidor_registro_del AFTER DELETE ON repartidor REFERENCING OLD TABLE AS viejas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS repartidor_registro_trunc ON repartidor;
+CREATE TRIGGER repartidor_registro_trunc BEFORE TRUNCATE ON repartidor
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+
+-- envio
+DROP TRIGGER IF EXISTS envio_registro_ins ON envio;
+CREATE TRIGGER envio_registro_ins AFTER INSERT ON envio REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS envio_registro_upd ON envio;
+CREATE TRIGGER envio_registro_upd AFTER UPDATE ON envio REFERENCING OLD TABLE AS viejas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS envio_registro_del ON envio;
+CREATE TRIGGER envio_registro_del AFTER DELETE ON envio REFERENCING OLD TABLE AS viejas
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
+DROP TRIGGER IF EXISTS envio_registro_trunc ON envio;
+CREATE TRIGGER envio_registro_trunc BEFORE TRUNCATE ON envio
+    FOR EACH STATEMENT EXECUTE FUNCTION registrar_cambios('id');
@@ -0,0 +1,14 @@
+-- Puntos de reanudación de las importaciones (services.StreamingImporter).
+--
+-- Una fila por fichero y tabla con cuántas filas de esa tabla van ya
+-- confirmadas; la tabla '*' marca el fichero como importado entero. El
+-- fichero se identifica por su nombre y su tamaño (StreamingImporter.claveFichero).
+--
+-- Idempotente: se puede ejecutar varias veces (SqlScripts lo hace sentencia a sentencia).
+
+CREATE TABLE IF NOT EXISTS import_checkpoint (
+    fichero TEXT   NOT NULL,
+    tabla   TEXT   NOT NULL,
+    filas   BIGINT NOT NULL,
+    PRIMARY KEY (fichero, tabla)
+);
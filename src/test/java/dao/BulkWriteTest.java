@@ -0,0 +1,72 @@
+package dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BulkWriteTest {
+
+    private record Fila(int id, String valor) { }
+
+    @Test
+    void sinRepetidasDejaLaUltimaEnLaPosicionDeLaPrimera() {
+        List<Fila> filas = List.of(new Fila(1, "a"), new Fila(2, "b"), new Fila(1, "c"), new Fila(3, "d"), new Fila(2, "e"));
+
+        List<Fila> unicas = new ArrayList<>(BulkWrite.sinRepetidas(filas, Fila::id));
+
+        assertEquals(List.of(new Fila(1, "c"), new Fila(2, "e"), new Fila(3, "d")), unicas);
+    }
+
+    @Test
+    void sinRepetidasConClaveCompuesta() {
+        List<int[]> filas = List.of(new int[]{1, 1}, new int[]{1, 2}, new int[]{1, 1});
+
+        assertEquals(2, BulkWrite.sinRepetidas(filas, f -> List.of(f[0], f[1])).size());
+    }
+
+    @Test
+    void sinRepetidasSinFilas() {
+        assertEquals(0, BulkWrite.sinRepetidas(List.<Fila>of(), Fila::id).size());
+    }
+
+    private static final BulkWrite.Tabla<Fila> SIMPLE = new BulkWrite.Tabla<>("fila", 1, List.of(
+            BulkWrite.col("id", "integer", Fila::id),
+            BulkWrite.col("valor", "text", Fila::valor)));
+
+    private static final BulkWrite.Tabla<int[]> COMPUESTA = new BulkWrite.Tabla<>("l", 2, List.of(
+            BulkWrite.col("a", "integer", f -> f[0]),
+            BulkWrite.col("b", "integer", f -> f[1]),
+            BulkWrite.col("n", "integer", f -> f[2])));
+
+    @Test
+    void sqlGeneradoDesdeLasColumnas() {
+        assertEquals("INSERT INTO fila (id, valor) VALUES (?, ?) ON CONFLICT (id) DO UPDATE SET valor = EXCLUDED.valor",
+                SIMPLE.upsertSql());
+        assertEquals("INSERT INTO fila (id, valor) SELECT * FROM unnest(?::integer[], ?::text[])"
+                + " ON CONFLICT (id) DO UPDATE SET valor = EXCLUDED.valor", SIMPLE.upsertAllSql());
+        assertEquals("UPDATE fila t SET valor = v.valor FROM unnest(?::integer[], ?::text[]) AS v(id, valor)"
+                + " WHERE t.id = v.id", SIMPLE.updateAllSql());
+        assertEquals("DELETE FROM fila WHERE id = ANY(?)", SIMPLE.deleteByIdsSql());
+    }
+
+    @Test
+    void sqlConClaveCompuesta() {
+        assertEquals("INSERT INTO l (a, b, n) SELECT * FROM unnest(?::integer[], ?::integer[], ?::integer[])"
+                + " ON CONFLICT (a, b) DO UPDATE SET n = EXCLUDED.n", COMPUESTA.upsertAllSql());
+        assertEquals("DELETE FROM l t USING unnest(?::integer[], ?::integer[]) AS v(a, b)"
+                + " WHERE t.a = v.a AND t.b = v.b", COMPUESTA.deleteAllSql());
+        assertNull(COMPUESTA.deleteByIdsSql());
+        assertEquals(List.of(1, 2), COMPUESTA.clave().apply(new int[]{1, 2, 3}));
+    }
+
+    @Test
+    void hacenFaltaColumnasFueraDeLaClave() {
+        assertThrows(IllegalArgumentException.class, () -> new BulkWrite.Tabla<>("t", 1, List.of(
+                BulkWrite.col("id", "integer", Fila::id))));
+    }
+}
@@ -0,0 +1,103 @@
+package dao;
+
+import db.Db;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Necesita la BD (variables PG_*); sin conexión los tests se saltan.
+ * Usa una tabla propia con ids de -3 a 21 (incluye 0 y negativos).
+ */
+class KeysetTest {
+
+    private static final String TABLA = "keyset_prueba";
+    private static final String PAGE_SQL = "SELECT id FROM " + TABLA + " WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String PAGE_BEFORE_SQL = "SELECT id FROM " + TABLA + " WHERE id < ? ORDER BY id DESC LIMIT ?";
+    private static final String PAGE_SKIP_SQL = "SELECT id FROM " + TABLA + " WHERE id > ? ORDER BY id OFFSET ? LIMIT ?";
+    private static final RowMapper<Integer> ID = rs -> rs.getInt("id");
+
+    private static boolean hayBd;
+
+    @BeforeAll
+    static void crearTabla() {
+        try (Connection con = Db.getConnection();
+             Statement st = con.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + TABLA);
+            st.execute("CREATE TABLE " + TABLA + " (id INTEGER PRIMARY KEY)");
+            st.execute("INSERT INTO " + TABLA + " SELECT generate_series(-3, 21)");
+            st.execute("ANALYZE " + TABLA);
+            hayBd = true;
+        } catch (SQLException e) {
+            hayBd = false;
+        }
+    }
+
+    @AfterAll
+    static void borrarTabla() throws SQLException {
+        if (!hayBd) return;
+        try (Connection con = Db.getConnection();
+             Statement st = con.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + TABLA);
+        }
+    }
+
+    @Test
+    void primeraPaginaIncluyeCeroYNegativos() throws SQLException {
+        assumeTrue(hayBd, "sin BD");
+
+        assertEquals(List.of(-3, -2, -1, 0, 1), Keyset.after(PAGE_SQL, Integer.MIN_VALUE, 5, ID));
+    }
+
+    @Test
+    void recorrerPorPaginasDevuelveTodoUnaVez() throws SQLException {
+        assumeTrue(hayBd, "sin BD");
+
+        List<Integer> todos = new ArrayList<>();
+        List<Integer> pagina;
+        int ultimo = Integer.MIN_VALUE;
+        while (!(pagina = Keyset.after(PAGE_SQL, ultimo, 7, ID)).isEmpty()) {
+            todos.addAll(pagina);
+            ultimo = pagina.get(pagina.size() - 1);
+        }
+
+        assertEquals(25, todos.size());
+        assertEquals(-3, todos.get(0));
+        assertEquals(21, todos.get(24));
+    }
+
+    @Test
+    void beforeDevuelveEnOrdenAscendente() throws SQLException {
+        assumeTrue(hayBd, "sin BD");
+
+        assertEquals(List.of(19, 20, 21), Keyset.before(PAGE_BEFORE_SQL, Integer.MAX_VALUE, 3, ID));
+        assertEquals(List.of(-3, -2), Keyset.before(PAGE_BEFORE_SQL, -1, 5, ID));
+    }
+
+    @Test
+    void saltarDesdeUnaPaginaConocida() throws SQLException {
+        assumeTrue(hayBd, "sin BD");
+
+        // Tercera página de 10 partiendo de la primera (tras MIN_VALUE): se saltan 20
+        assertEquals(List.of(17, 18, 19, 20, 21), Keyset.after(PAGE_SKIP_SQL, Integer.MIN_VALUE, 20, 10, ID));
+        // Más allá del final: vacía
+        assertEquals(List.of(), Keyset.after(PAGE_SKIP_SQL, 10, 50, 10, ID));
+    }
+
+    @Test
+    void estimacionTrasAnalyze() throws SQLException {
+        assumeTrue(hayBd, "sin BD");
+
+        // Con la tabla recién analizada la estimación coincide con el total
+        assertEquals(25, Keyset.estimatedRows(TABLA));
+    }
+}
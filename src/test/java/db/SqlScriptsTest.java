@@ -0,0 +1,47 @@
+package db;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlScriptsTest {
+
+    @Test
+    void losPuntoYComaDentroDeDolarNoCortan() throws IOException {
+        List<String> s = SqlScripts.leer("db/prueba_dolar.sql");
+
+        assertEquals(4, s.size());
+        assertEquals("CREATE TABLE IF NOT EXISTS t (id INT)", s.get(0));
+        assertTrue(s.get(1).startsWith("CREATE OR REPLACE FUNCTION f()"));
+        assertTrue(s.get(1).contains("INSERT INTO t VALUES (1);"));
+        assertTrue(s.get(1).contains("-- un comentario dentro del cuerpo se queda"));
+        assertTrue(s.get(1).endsWith("$$ LANGUAGE plpgsql"));
+        assertEquals("SELECT $$uno; dos$$", s.get(2));
+        // La última no lleva ';'
+        assertEquals("SELECT 1", s.get(3));
+    }
+
+    @Test
+    void lasMigracionesSeLeenEnteras() throws IOException {
+        for (String m : List.of(SqlScripts.BUSQUEDA_TRIGRAM, SqlScripts.NOTIFICAR_CAMBIOS,
+                SqlScripts.INDICES_CLAVES_AJENAS, SqlScripts.REGISTRO_CAMBIOS, SqlScripts.IMPORT_CHECKPOINT)) {
+            for (String sql : SqlScripts.leer(m)) {
+                // Ninguna sentencia se queda con un $$ sin cerrar ni empieza por comentario
+                int dolares = (sql.length() - sql.replace("$$", "").length()) / 2;
+                assertEquals(0, dolares % 2, m + ": " + sql);
+                assertFalse(sql.startsWith("--"), m + ": " + sql);
+            }
+        }
+    }
+
+    @Test
+    void recursoQueNoExiste() {
+        assertThrows(IOException.class, () -> SqlScripts.leer("db/no_existe.sql"));
+    }
+}
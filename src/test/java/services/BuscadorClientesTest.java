@@ -0,0 +1,107 @@
+package services;
+
+import dao.ClienteDAO;
+import model.Cliente;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BuscadorClientesTest {
+
+    private static final List<Cliente> CLIENTES = List.of(
+            new Cliente(1, "García", "garcia@x.es"),
+            new Cliente(2, "Garrido", "garrido@x.es"),
+            new Cliente(3, "López", "lopez@x.es"));
+
+    // DAO sin BD: filtra la lista fija y apunta cada consulta. Como la BD, con
+    // filtros cortos devuelve por id y con 3 o más por "parecido" (aquí, id al revés)
+    private static class DaoFalso extends ClienteDAO {
+        final List<String> consultas = new ArrayList<>();
+
+        @Override
+        public List<Cliente> search(String filtro, int limit) {
+            consultas.add(filtro);
+            Comparator<Cliente> orden = Comparator.comparing(Cliente::getId);
+            return CLIENTES.stream()
+                    .filter(c -> c.getNombre().toLowerCase().contains(filtro) || c.getEmail().contains(filtro))
+                    .sorted(filtro.length() < 3 ? orden : orden.reversed())
+                    .limit(limit)
+                    .toList();
+        }
+    }
+
+    private static List<Integer> ids(List<Cliente> clientes) {
+        return clientes.stream().map(Cliente::getId).toList();
+    }
+
+    @Test
+    void filtroMasLargoSaleDelPrefijoEnMemoria() throws SQLException {
+        DaoFalso dao = new DaoFalso();
+        BuscadorClientes b = new BuscadorClientes(dao, 10, 8);
+
+        assertEquals(2, b.buscar("r").size());
+        List<Cliente> r = b.buscar("rc");
+
+        assertEquals(List.of("r"), dao.consultas);
+        assertEquals(List.of(1), ids(r));
+        assertEquals(1, b.getConsultas());
+        assertEquals(1, b.getAciertos());
+    }
+
+    @Test
+    void prefijoConOtroOrdenNoSeReutiliza() throws SQLException {
+        DaoFalso dao = new DaoFalso();
+        BuscadorClientes b = new BuscadorClientes(dao, 10, 8);
+
+        b.buscar("ga");
+        List<Cliente> gar = b.buscar("gar");
+        b.buscar("garr");
+
+        // "ga" va por id, "gar" y "garr" por parecido: cada una con su consulta y su orden
+        assertEquals(List.of("ga", "gar", "garr"), dao.consultas);
+        assertEquals(List.of(2, 1), ids(gar));
+        assertNull(b.enCache("garc"));
+        assertEquals(List.of(2, 1), ids(b.enCache("gar")));
+    }
+
+    @Test
+    void prefijoCortadoPorElLimitNoSirve() throws SQLException {
+        DaoFalso dao = new DaoFalso();
+        // Límite 2: el resultado de "r" (2 filas) puede estar incompleto
+        BuscadorClientes b = new BuscadorClientes(dao, 2, 8);
+
+        b.buscar("r");
+        b.buscar("rc");
+
+        assertEquals(List.of("r", "rc"), dao.consultas);
+    }
+
+    @Test
+    void normalizaYCacheaExacto() throws SQLException {
+        DaoFalso dao = new DaoFalso();
+        BuscadorClientes b = new BuscadorClientes(dao, 10, 8);
+
+        b.buscar("  López ");
+        b.buscar("lópez");
+
+        assertEquals(List.of("lópez"), dao.consultas);
+    }
+
+    @Test
+    void invalidarVacia() throws SQLException {
+        DaoFalso dao = new DaoFalso();
+        BuscadorClientes b = new BuscadorClientes(dao, 10, 8);
+
+        b.buscar("gar");
+        b.invalidar();
+
+        assertNull(b.enCache("gar"));
+        assertNull(b.enCache("garc"));
+    }
+}
@@ -0,0 +1,58 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CachingDAOTest {
+
+    private record Fila(int id, String valor) { }
+
+    // "Tabla" en memoria que apunta cada lectura por id
+    private final Map<Integer, Fila> tabla = new TreeMap<>(Map.of(1, new Fila(1, "a"), 2, new Fila(2, "b")));
+    private final List<Integer> lecturas = new ArrayList<>();
+
+    private final CachingDAO<Fila> dao = new CachingDAO<>(
+            id -> {
+                lecturas.add(id);
+                return tabla.get(id);
+            },
+            () -> new ArrayList<>(tabla.values()),
+            Fila::id);
+
+    @Test
+    void findAllLlenaLaCache() throws SQLException {
+        assertEquals(2, dao.precargar());
+
+        assertEquals("b", dao.findById(2).valor());
+        assertEquals(List.of(), lecturas);
+    }
+
+    @Test
+    void escribirInvalidaLaFila() throws SQLException {
+        dao.findById(1);
+        Fila nueva = new Fila(1, "z");
+        dao.escribir(nueva, () -> tabla.put(1, nueva));
+
+        assertEquals("z", dao.findById(1).valor());
+        assertEquals(List.of(1, 1), lecturas);
+    }
+
+    @Test
+    void escrituraQueFallaTambienInvalida() throws SQLException {
+        dao.findById(1);
+        assertThrows(SQLException.class, () -> dao.borrar(List.of(1), () -> {
+            throw new SQLException("fallo");
+        }));
+
+        dao.findById(1);
+        assertEquals(List.of(1, 1), lecturas);
+    }
+}
@@ -0,0 +1,52 @@
+package services;
+
+import model.Cliente;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClienteSearchIndexTest {
+
+    private static List<Integer> ids(List<Cliente> clientes) {
+        return clientes.stream().map(Cliente::getId).toList();
+    }
+
+    private static ClienteSearchIndex indice() {
+        return new ClienteSearchIndex(List.of(
+                new Cliente(1, "García", "garcia@x.es"),
+                new Cliente(2, "Garrido", "garrido@x.es"),
+                new Cliente(13, "López", "lopez@x.es")));
+    }
+
+    @Test
+    void buscaPorSubcadenaEnIdNombreYEmail() {
+        ClienteSearchIndex i = indice();
+
+        assertEquals(List.of(1, 2), ids(i.buscar("GAR")));
+        assertEquals(List.of(1), ids(i.buscar("garc")));
+        assertEquals(List.of(13), ids(i.buscar("13")));
+        assertEquals(List.of(), ids(i.buscar("zzz")));
+        assertEquals(List.of(1), ids(i.buscar("ga", 1)));
+    }
+
+    @Test
+    void noCasaACaballoEntreCampos() {
+        // "garcía\ngarcia@" no debe encontrarse como "íag"
+        assertEquals(List.of(), ids(indice().buscar("íag")));
+    }
+
+    @Test
+    void actualizarGuardaLosQueVienenYQuitaLosDemas() {
+        ClienteSearchIndex i = indice();
+
+        // 2 ha cambiado de nombre, 13 ya no existe
+        i.actualizar(List.of(2, 13), List.of(new Cliente(2, "Pérez", "perez@x.es")));
+
+        assertEquals(2, i.size());
+        assertEquals(List.of(1), ids(i.buscar("gar")));
+        assertEquals(List.of(2), ids(i.buscar("pérez")));
+        assertEquals(List.of(), ids(i.buscar("lópez")));
+    }
+}
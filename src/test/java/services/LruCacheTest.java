@@ -0,0 +1,53 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LruCacheTest {
+
+    @Test
+    void alLlenarseSaleLaMenosUsada() {
+        LruCache<String, Integer> c = new LruCache<>(2);
+        c.put("a", 1);
+        c.put("b", 2);
+        c.get("a");          // ahora la menos usada es "b"
+        c.put("c", 3);
+
+        assertEquals(2, c.size());
+        assertTrue(c.containsKey("a"));
+        assertFalse(c.containsKey("b"));
+        assertEquals(3, c.get("c"));
+    }
+
+    @Test
+    void putSustituyeSinCrecer() {
+        LruCache<String, Integer> c = new LruCache<>(2);
+        c.put("a", 1);
+        c.put("a", 2);
+
+        assertEquals(1, c.size());
+        assertEquals(2, c.get("a"));
+    }
+
+    @Test
+    void removeYClear() {
+        LruCache<String, Integer> c = new LruCache<>(3);
+        c.put("a", 1);
+        c.put("b", 2);
+
+        assertEquals(1, c.remove("a"));
+        assertNull(c.get("a"));
+        c.clear();
+        assertEquals(0, c.size());
+    }
+
+    @Test
+    void capacidadInvalida() {
+        assertThrows(IllegalArgumentException.class, () -> new LruCache<>(0));
+    }
+}
@@ -0,0 +1,124 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReadThroughCacheTest {
+
+    // Loader que apunta qué claves ha tenido que cargar
+    private final List<Integer> cargadas = new ArrayList<>();
+
+    private ReadThroughCache<Integer, String> cache(int maxSize, Duration ttl) {
+        return new ReadThroughCache<>(maxSize, ttl, id -> {
+            cargadas.add(id);
+            return id < 0 ? null : "v" + id;
+        });
+    }
+
+    @Test
+    void segundaLecturaEsUnAcierto() throws SQLException {
+        ReadThroughCache<Integer, String> c = cache(10, Duration.ofMinutes(5));
+
+        assertEquals("v1", c.get(1));
+        assertEquals("v1", c.get(1));
+
+        assertEquals(List.of(1), cargadas);
+        assertEquals(1, c.getHits());
+        assertEquals(1, c.getMisses());
+    }
+
+    @Test
+    void tambienGuardaLosQueNoExisten() throws SQLException {
+        ReadThroughCache<Integer, String> c = cache(10, Duration.ofMinutes(5));
+
+        assertNull(c.get(-1));
+        assertNull(c.get(-1));
+
+        assertEquals(List.of(-1), cargadas);
+    }
+
+    @Test
+    void caducadaSeVuelveACargar() throws SQLException {
+        // TTL 0: cada entrada caduca en cuanto se guarda
+        ReadThroughCache<Integer, String> c = cache(10, Duration.ZERO);
+
+        c.get(1);
+        c.get(1);
+
+        assertEquals(List.of(1, 1), cargadas);
+        assertEquals(1, c.getExpiradas());
+        assertEquals(0, c.getHits());
+    }
+
+    @Test
+    void alPasarseDelTamanoSaleLaMenosUsada() throws SQLException {
+        ReadThroughCache<Integer, String> c = cache(2, Duration.ofMinutes(5));
+        c.get(1);
+        c.get(2);
+        c.get(1);   // la menos usada es ahora la 2
+        c.get(3);
+
+        assertEquals(2, c.size());
+        assertEquals(1, c.getDesalojadas());
+        cargadas.clear();
+        c.get(1);
+        c.get(2);
+        assertEquals(List.of(2), cargadas);
+    }
+
+    @Test
+    void invalidarObligaARecargar() throws SQLException {
+        ReadThroughCache<Integer, String> c = cache(10, Duration.ofMinutes(5));
+        c.get(1);
+        c.invalidar(1);
+        c.get(1);
+
+        assertEquals(List.of(1, 1), cargadas);
+    }
+
+    @Test
+    void precargarLlenaSinLoader() throws SQLException {
+        ReadThroughCache<Integer, String> c = cache(10, Duration.ofMinutes(5));
+        c.precargar(List.of("v1", "v2"), v -> Integer.parseInt(v.substring(1)));
+
+        assertEquals("v2", c.get(2));
+        assertEquals(List.of(), cargadas);
+    }
+
+    @Test
+    void invalidarDuranteLaCargaNoGuardaElValorViejo() throws SQLException {
+        // El loader simula otro hilo que invalida la clave mientras se lee de la BD
+        AtomicReference<ReadThroughCache<Integer, String>> ref = new AtomicReference<>();
+        ReadThroughCache<Integer, String> c = new ReadThroughCache<>(10, Duration.ofMinutes(5), id -> {
+            cargadas.add(id);
+            if (cargadas.size() == 1) ref.get().invalidar(id);
+            return "v" + cargadas.size();
+        });
+        ref.set(c);
+
+        assertEquals("v1", c.get(1));
+        assertEquals("v2", c.get(1));   // no se quedó v1 en la caché
+        assertEquals("v2", c.get(1));
+
+        assertEquals(List.of(1, 1), cargadas);
+    }
+
+    @Test
+    void precargaInvalidadaNoSeGuarda() throws SQLException {
+        ReadThroughCache<Integer, String> c = cache(10, Duration.ofMinutes(5));
+        c.precargar(() -> {
+            c.invalidarTodo();
+            return List.of("v1");
+        }, v -> Integer.parseInt(v.substring(1)));
+
+        assertEquals(0, c.size());
+    }
+}
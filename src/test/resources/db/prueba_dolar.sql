@@ -0,0 +1,13 @@
+-- Script de prueba para SqlScriptsTest
+CREATE TABLE IF NOT EXISTS t (id INT);
+
+CREATE OR REPLACE FUNCTION f() RETURNS trigger AS $$
+BEGIN
+    -- un comentario dentro del cuerpo se queda
+    INSERT INTO t VALUES (1);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT $$uno; dos$$;
+SELECT 1